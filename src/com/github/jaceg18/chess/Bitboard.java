@@ -0,0 +1,180 @@
+package com.github.jaceg18.chess;
+
+/**
+ * Static helpers and precomputed attack tables for the bitboard representation.
+ * Squares are indexed as row * 8 + col, matching the row/col layout used by {@link Board}
+ * (square 0 is a8, square 63 is h1).
+ */
+public final class Bitboard {
+
+    // Piece type offsets, add 6 for black pieces
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    public static final long[] KNIGHT_ATTACKS = new long[64];
+    public static final long[] KING_ATTACKS = new long[64];
+    public static final long[][] PAWN_ATTACKS = new long[2][64];
+    // Squares strictly between two squares on a shared line, empty when they are not aligned
+    public static final long[][] BETWEEN = new long[64][64];
+    // The full line through two squares, empty when they are not aligned
+    public static final long[][] LINE = new long[64][64];
+
+    private static final int[][] KNIGHT_OFFSETS = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+    private static final int[][] KING_OFFSETS = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}};
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            KNIGHT_ATTACKS[square] = offsetAttacks(square, KNIGHT_OFFSETS);
+            KING_ATTACKS[square] = offsetAttacks(square, KING_OFFSETS);
+            PAWN_ATTACKS[0][square] = offsetAttacks(square, new int[][]{{-1, -1}, {-1, 1}});
+            PAWN_ATTACKS[1][square] = offsetAttacks(square, new int[][]{{1, -1}, {1, 1}});
+        }
+
+        for (int from = 0; from < 64; from++) {
+            for (int[] direction : KING_OFFSETS) {
+                long line = ray(from, direction) | ray(from, new int[]{-direction[0], -direction[1]}) | bit(from);
+                long between = 0L;
+                int row = row(from) + direction[0];
+                int col = col(from) + direction[1];
+                while (row >= 0 && row < 8 && col >= 0 && col < 8) {
+                    int to = square(row, col);
+                    BETWEEN[from][to] = between;
+                    LINE[from][to] = line;
+                    between |= bit(to);
+                    row += direction[0];
+                    col += direction[1];
+                }
+            }
+        }
+    }
+
+    private Bitboard() {
+    }
+
+    /**
+     * Converts a row and col to a square index
+     *
+     * @param row The row of the square
+     * @param col The col of the square
+     * @return The square index
+     */
+    public static int square(int row, int col) {
+        return (row << 3) | col;
+    }
+
+    /**
+     * Gets the row of a square index
+     *
+     * @param square The square index
+     * @return The row of the square
+     */
+    public static int row(int square) {
+        return square >>> 3;
+    }
+
+    /**
+     * Gets the col of a square index
+     *
+     * @param square The square index
+     * @return The col of the square
+     */
+    public static int col(int square) {
+        return square & 7;
+    }
+
+    /**
+     * Gets the single bit set for a square
+     *
+     * @param square The square index
+     * @return A bitboard with only the square set
+     */
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    /**
+     * Gets every square of a col
+     *
+     * @param col The col
+     * @return A bitboard with the whole col set
+     */
+    public static long file(int col) {
+        return 0x0101010101010101L << col;
+    }
+
+    /**
+     * Gets the lowest set square of a bitboard
+     *
+     * @param bitboard The bitboard, must not be empty
+     * @return The index of the lowest set square
+     */
+    public static int lsb(long bitboard) {
+        return Long.numberOfTrailingZeros(bitboard);
+    }
+
+    /**
+     * Gets the bishop attacks from a square with a magic table lookup
+     *
+     * @param square   The square the bishop stands on
+     * @param occupied All occupied squares on the board
+     * @return The attacked squares, including the first blocker on each ray
+     */
+    public static long bishopAttacks(int square, long occupied) {
+        return Magic.bishopAttacks(square, occupied);
+    }
+
+    /**
+     * Gets the rook attacks from a square with a magic table lookup
+     *
+     * @param square   The square the rook stands on
+     * @param occupied All occupied squares on the board
+     * @return The attacked squares, including the first blocker on each ray
+     */
+    public static long rookAttacks(int square, long occupied) {
+        return Magic.rookAttacks(square, occupied);
+    }
+
+    /**
+     * Gets the queen attacks from a square
+     *
+     * @param square   The square the queen stands on
+     * @param occupied All occupied squares on the board
+     * @return The attacked squares, including the first blocker on each ray
+     */
+    public static long queenAttacks(int square, long occupied) {
+        return Magic.bishopAttacks(square, occupied) | Magic.rookAttacks(square, occupied);
+    }
+
+    /**
+     * Helper for building the line tables that walks from a square to the edge of the board
+     */
+    private static long ray(int square, int[] direction) {
+        long ray = 0L;
+        int row = row(square) + direction[0];
+        int col = col(square) + direction[1];
+        while (row >= 0 && row < 8 && col >= 0 && col < 8) {
+            ray |= bit(square(row, col));
+            row += direction[0];
+            col += direction[1];
+        }
+        return ray;
+    }
+
+    /**
+     * Helper for building the leaper attack tables
+     */
+    private static long offsetAttacks(int square, int[][] offsets) {
+        long attacks = 0L;
+        for (int[] offset : offsets) {
+            int row = row(square) + offset[0];
+            int col = col(square) + offset[1];
+            if (row >= 0 && row < 8 && col >= 0 && col < 8)
+                attacks |= bit(square(row, col));
+        }
+        return attacks;
+    }
+}
@@ -4,62 +4,198 @@ import com.github.jaceg18.chess.identity.Color;
 import com.github.jaceg18.chess.identity.Flag;
 import com.github.jaceg18.chess.identity.MoveType;
 import com.github.jaceg18.chess.pieces.King;
-import com.github.jaceg18.chess.pieces.Pawn;
 import com.github.jaceg18.chess.pieces.Piece;
 import com.github.jaceg18.chess.ui.GUI;
 
 import java.io.Serializable;
 import java.util.*;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @SuppressWarnings("unused")
 public class Board  {
     public static final int ROWS = 8;
     public static final int COLS = 8;
+    public static final int MAX_MOVES = 256;
+    public static final int EMPTY = -1;
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    // Move kinds for generateLegalMoves
+    public static final int ALL_MOVES = 0;
+    public static final int NOISY_MOVES = 1;
+    public static final int QUIET_MOVES = 2;
+
+    // Castling right bits
+    public static final int WHITE_KING_SIDE = 1;
+    public static final int WHITE_QUEEN_SIDE = 2;
+    public static final int BLACK_KING_SIDE = 4;
+    public static final int BLACK_QUEEN_SIDE = 8;
+
+    // Initial length of the undo stack, it doubles whenever a game outgrows it
+    private static final int INITIAL_HISTORY = 1024;
+    // Squares of the first and last rank, where no pawn can stand
+    private static final long BACK_RANKS = 0xFF000000000000FFL;
+    // Largest halfmove clock the undo record has room for (see pushState)
+    private static final int MAX_HALFMOVE_CLOCK = (1 << 13) - 1;
+    // FEN letter of each piece index
+    private static final String PIECE_CHARS = "PNBRQKpnbrqk";
+    private static final int[] CASTLING_MASKS = new int[64];
+    private static final long[][] ZOBRIST_PIECES = new long[12][64];
+    private static final long[] ZOBRIST_CASTLING = new long[16];
+    private static final long[] ZOBRIST_EN_PASSANT = new long[8];
+    private static final long ZOBRIST_SIDE;
+    // Material keys of the positions neither side can mate from: bare kings, or a lone minor piece against a king
+    private static final long[] INSUFFICIENT_MATERIAL = {
+            materialKey(Bitboard.KING) + materialKey(6 + Bitboard.KING),
+            materialKey(Bitboard.KING) + materialKey(6 + Bitboard.KING) + materialKey(Bitboard.KNIGHT),
+            materialKey(Bitboard.KING) + materialKey(6 + Bitboard.KING) + materialKey(Bitboard.BISHOP),
+            materialKey(Bitboard.KING) + materialKey(6 + Bitboard.KING) + materialKey(6 + Bitboard.KNIGHT),
+            materialKey(Bitboard.KING) + materialKey(6 + Bitboard.KING) + materialKey(6 + Bitboard.BISHOP)
+    };
+
     private int skippedMoves;
     private Move lastMove;
     private Move previousMove;
-    private HashMap<Integer, Integer> positionHistory;
-    private static long[][][] zobristTable;
-    private Piece[][] pieces;
+    private final int[] mailbox = new int[64];
+    private final long[] bitboards = new long[12];
+    private final long[] colorOccupancy = new long[2];
+    private long occupied;
+    // Squares of each team's pieces in no particular order, and each occupied square's index in its list
+    private final int[][] pieceSquares = new int[2][16];
+    private final int[] pieceCounts = new int[2];
+    private final int[] pieceListIndex = new int[64];
+    private final int[] kingSquares = new int[2];
+    // Count of every piece index packed into 4 bits each, see materialKey
+    private long materialKey;
+    private Color sideToMove;
+    private int castlingRights;
+    private int castled;
+    // Bit per team set once its king has left its square, by castling or otherwise
+    private int kingMoved;
+    private int enPassantSquare;
+    // Plies since the last capture or pawn move, for the fifty move rule and to bound the repetition scan
+    private int halfmoveClock;
+    private long zobristKey;
+    // Preallocated undo stack, one zobrist key and one packed state record per move made (see pushState).
+    // It holds the whole game so repetitions can be found, and grows instead of limiting the game length
+    private long[] keyHistory = new long[INITIAL_HISTORY];
+    private int[] stateHistory = new int[INITIAL_HISTORY];
+    private int historySize;
+    // Plies played before the position was set up, for the fullmove number
+    private int startPly;
+    // Scratch swap list for see, one entry per capture in an exchange
+    private final int[] seeGains = new int[32];
+
+    static {
+        Arrays.fill(CASTLING_MASKS, 15);
+        CASTLING_MASKS[Bitboard.square(7, 4)] &= ~(WHITE_KING_SIDE | WHITE_QUEEN_SIDE);
+        CASTLING_MASKS[Bitboard.square(7, 7)] &= ~WHITE_KING_SIDE;
+        CASTLING_MASKS[Bitboard.square(7, 0)] &= ~WHITE_QUEEN_SIDE;
+        CASTLING_MASKS[Bitboard.square(0, 4)] &= ~(BLACK_KING_SIDE | BLACK_QUEEN_SIDE);
+        CASTLING_MASKS[Bitboard.square(0, 7)] &= ~BLACK_KING_SIDE;
+        CASTLING_MASKS[Bitboard.square(0, 0)] &= ~BLACK_QUEEN_SIDE;
+
+        // Fixed seed so keys are identical across runs and threads
+        Random rand = new Random(0x5EED_C0FFEEL);
+        for (int piece = 0; piece < 12; piece++)
+            for (int square = 0; square < 64; square++)
+                ZOBRIST_PIECES[piece][square] = rand.nextLong();
+        for (int rights = 0; rights < 16; rights++)
+            ZOBRIST_CASTLING[rights] = rand.nextLong();
+        for (int col = 0; col < COLS; col++)
+            ZOBRIST_EN_PASSANT[col] = rand.nextLong();
+        ZOBRIST_SIDE = rand.nextLong();
+    }
 
     public Board() {
-        this.pieces = Utility.getDefaultBoard();
-        this.positionHistory = new HashMap<>();
+        setFen(START_FEN);
+    }
 
-        if (zobristTable == null) {
-            initZobristTable();
-        }
+    /**
+     * Creates a board set up from a FEN string, without setting up the default position first
+     *
+     * @param fen The position in Forsyth-Edwards Notation
+     * @throws IllegalArgumentException If the FEN is malformed
+     */
+    private Board(String fen) {
+        setFen(fen);
+    }
+
+    /**
+     * Creates a board from a FEN string
+     *
+     * @param fen The position in Forsyth-Edwards Notation, the clock fields may be left out
+     * @return The board set up with the position
+     * @throws IllegalArgumentException If the FEN is malformed
+     */
+    public static Board fromFen(String fen) {
+        return new Board(fen);
+    }
 
+    /**
+     * Creates a copy of a board without setting up the default position first
+     *
+     * @param board The board to copy
+     */
+    private Board(Board board) {
+        copyFrom(board);
     }
 
     /**
-     * Creates a deep copy of the board
+     * Creates a copy of the board
      *
-     * @return a deep copy of the board
+     * @return a copy of the board
      */
     public Board getCopy() {
-        Board board = new Board();
-        board.pieces = new Piece[ROWS][COLS];
+        return new Board(this);
+    }
 
-        for (int row = 0; row < ROWS; row++) {
-            for (int col = 0; col < COLS; col++) {
-                Piece piece = getPieceAt(row, col);
-                if (piece != null)
-                    board.pieces[row][col] = piece.copy();
-            }
+    /**
+     * Overwrites this board with the position of another board, reusing this board's arrays.
+     * Only primitive state is copied, pieces are shared read-only instances, so nothing is allocated.
+     * The key history is copied too, so repetitions of positions played before the copy are still found.
+     *
+     * @param board The board to copy
+     */
+    public void copyFrom(Board board) {
+        System.arraycopy(board.mailbox, 0, mailbox, 0, mailbox.length);
+        System.arraycopy(board.bitboards, 0, bitboards, 0, bitboards.length);
+        System.arraycopy(board.colorOccupancy, 0, colorOccupancy, 0, colorOccupancy.length);
+        System.arraycopy(board.pieceSquares[0], 0, pieceSquares[0], 0, board.pieceCounts[0]);
+        System.arraycopy(board.pieceSquares[1], 0, pieceSquares[1], 0, board.pieceCounts[1]);
+        System.arraycopy(board.pieceCounts, 0, pieceCounts, 0, pieceCounts.length);
+        System.arraycopy(board.pieceListIndex, 0, pieceListIndex, 0, pieceListIndex.length);
+        System.arraycopy(board.kingSquares, 0, kingSquares, 0, kingSquares.length);
+        if (keyHistory.length < board.keyHistory.length) {
+            keyHistory = new long[board.keyHistory.length];
+            stateHistory = new int[board.stateHistory.length];
         }
-        board.positionHistory = new HashMap<>(this.positionHistory);
-        board.lastMove = lastMove;
-        board.previousMove = previousMove;
-        return board;
+        System.arraycopy(board.keyHistory, 0, keyHistory, 0, board.historySize);
+        System.arraycopy(board.stateHistory, 0, stateHistory, 0, board.historySize);
+        occupied = board.occupied;
+        materialKey = board.materialKey;
+        sideToMove = board.sideToMove;
+        castlingRights = board.castlingRights;
+        castled = board.castled;
+        kingMoved = board.kingMoved;
+        enPassantSquare = board.enPassantSquare;
+        halfmoveClock = board.halfmoveClock;
+        zobristKey = board.zobristKey;
+        historySize = board.historySize;
+        startPly = board.startPly;
+        skippedMoves = board.skippedMoves;
+        lastMove = board.lastMove;
+        previousMove = board.previousMove;
     }
 
     /**
-     * Skips the turn for the AI
+     * Skips the turn for the AI.
+     * The halfmove clock is reset so no repetition is found across the skipped turn.
      */
     public void skipMove() {
+        pushState(EMPTY);
+        halfmoveClock = 0;
+        setEnPassantSquare(-1);
+        switchSideToMove();
         skippedMoves++;
     }
 
@@ -69,27 +205,163 @@ public class Board  {
 
     public void undoSkipMove() {
         if (skippedMoves > 0) {
+            popState();
             skippedMoves--;
         }
     }
 
     /**
      * Gets the hash code value for this Board.
+     * The key is kept up to date by makeMove, undoMove and skipMove, so this is a field read.
      *
      * @return The hash code value for this Board.
      */
     public long zobristHashCode() {
-        long hash = 0;
-        for (int row = 0; row < ROWS; row++) {
-            for (int col = 0; col < COLS; col++) {
-                Piece piece = getPieceAt(row, col);
-                if (piece != null) {
-                    int pieceIndex = Utility.pieceToIndex(piece);
-                    hash ^= zobristTable[pieceIndex][row][col];
-                }
+        return zobristKey;
+    }
+
+    /**
+     * Computes the zobrist key from scratch, covering pieces, side to move, castling rights and the en passant file
+     *
+     * @return The zobrist key of the current position
+     */
+    private long computeZobristKey() {
+        long key = 0L;
+        for (int piece = 0; piece < 12; piece++) {
+            long bitboard = bitboards[piece];
+            while (bitboard != 0) {
+                key ^= ZOBRIST_PIECES[piece][Bitboard.lsb(bitboard)];
+                bitboard &= bitboard - 1;
             }
         }
-        return hash;
+        key ^= ZOBRIST_CASTLING[castlingRights];
+        if (enPassantSquare != -1) key ^= ZOBRIST_EN_PASSANT[Bitboard.col(enPassantSquare)];
+        if (sideToMove == Color.BLACK) key ^= ZOBRIST_SIDE;
+        return key;
+    }
+
+    /**
+     * Pushes the undo record of a move before it is made: the zobrist key, plus the castling rights, castled flags,
+     * en passant square, captured piece, king moved flags and halfmove clock packed into one int.
+     * The saved keys double as the stack of earlier positions searched for repetitions, and the stack grows
+     * when it is full.
+     *
+     * @param captured The piece index the move captures, EMPTY for none
+     */
+    private void pushState(int captured) {
+        if (historySize == keyHistory.length) {
+            keyHistory = Arrays.copyOf(keyHistory, historySize * 2);
+            stateHistory = Arrays.copyOf(stateHistory, historySize * 2);
+        }
+        keyHistory[historySize] = zobristKey;
+        stateHistory[historySize] = castlingRights | (castled << 4) | ((enPassantSquare + 1) << 6)
+                | ((captured + 1) << 13) | (kingMoved << 17) | (halfmoveClock << 19);
+        historySize++;
+    }
+
+    /**
+     * Restores the zobrist key, castling rights, castled flags, en passant square, king moved flags, halfmove clock
+     * and side to move saved by pushState
+     */
+    private void popState() {
+        historySize--;
+        int state = stateHistory[historySize];
+        zobristKey = keyHistory[historySize];
+        castlingRights = state & 15;
+        castled = (state >>> 4) & 3;
+        enPassantSquare = ((state >>> 6) & 127) - 1;
+        kingMoved = (state >>> 17) & 3;
+        halfmoveClock = state >>> 19;
+        sideToMove = Color.invert(sideToMove);
+    }
+
+    /**
+     * Updates the castling rights after a piece leaves or lands on a square
+     */
+    private void updateCastlingRights(int fromSquare, int toSquare) {
+        int rights = castlingRights & CASTLING_MASKS[fromSquare] & CASTLING_MASKS[toSquare];
+        if (rights != castlingRights) {
+            zobristKey ^= ZOBRIST_CASTLING[castlingRights] ^ ZOBRIST_CASTLING[rights];
+            castlingRights = rights;
+        }
+    }
+
+    /**
+     * Sets the en passant square and updates the zobrist key
+     *
+     * @param square The square behind a double pushed pawn, -1 for none
+     */
+    private void setEnPassantSquare(int square) {
+        if (enPassantSquare != -1) zobristKey ^= ZOBRIST_EN_PASSANT[Bitboard.col(enPassantSquare)];
+        enPassantSquare = square;
+        if (enPassantSquare != -1) zobristKey ^= ZOBRIST_EN_PASSANT[Bitboard.col(enPassantSquare)];
+    }
+
+    /**
+     * Passes the turn to the other team and updates the zobrist key
+     */
+    private void switchSideToMove() {
+        sideToMove = Color.invert(sideToMove);
+        zobristKey ^= ZOBRIST_SIDE;
+    }
+
+    /**
+     * Gets the team to move
+     *
+     * @return The team to move
+     */
+    public Color getSideToMove() {
+        return sideToMove;
+    }
+
+    /**
+     * Gets the remaining castling rights as a mask of the castling right bits
+     *
+     * @return The castling rights
+     */
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    /**
+     * Checks if a team still has the right to castle on either side
+     *
+     * @param color The team to check
+     * @return A boolean stating whether the team can still castle later
+     */
+    public boolean canCastle(Color color) {
+        int rights = color == Color.WHITE ? WHITE_KING_SIDE | WHITE_QUEEN_SIDE : BLACK_KING_SIDE | BLACK_QUEEN_SIDE;
+        return (castlingRights & rights) != 0;
+    }
+
+    /**
+     * Checks if a team has castled
+     *
+     * @param color The team to check
+     * @return A boolean stating whether the team has castled
+     */
+    public boolean hasCastled(Color color) {
+        return (castled & (1 << color.ordinal())) != 0;
+    }
+
+    /**
+     * Checks if a team's king has moved during the game, castling included.
+     * For a position set up from a FEN the king counts as moved when it is not on its starting square
+     *
+     * @param color The team to check
+     * @return A boolean stating whether the king has moved
+     */
+    public boolean hasKingMoved(Color color) {
+        return (kingMoved & (1 << color.ordinal())) != 0;
+    }
+
+    /**
+     * Gets the square a pawn can capture onto en passant
+     *
+     * @return The en passant square, -1 if there is none
+     */
+    public int getEnPassantSquare() {
+        return enPassantSquare;
     }
 
     @Override
@@ -101,34 +373,259 @@ public class Board  {
             return false;
         }
         Board other = (Board) obj;
+        return Arrays.equals(bitboards, other.bitboards);
+    }
+
+    /**
+     * Sets up a position from a FEN string, reusing this board's arrays so nothing but the split fields is allocated.
+     * The placement has to describe 8 ranks of 8 files with exactly one king per team and no pawn on the first or
+     * last rank, and the team that is not to move must not be in check. An en passant square has to be on the rank
+     * the side to move captures onto, the halfmove clock must not be negative and the fullmove number has to be
+     * positive. Castling rights whose king or rook is not on its starting square are dropped. The move history is
+     * cleared, so repetitions are only found from this position on.
+     *
+     * @param fen The position in Forsyth-Edwards Notation with fields separated by single spaces, the clock fields may be left out
+     * @throws IllegalArgumentException If the FEN is malformed, the board is then left in an undefined state
+     */
+    public void setFen(String fen) {
+        String[] fields = fen.trim().split(" ");
+        if (fields.length < 4) throw new IllegalArgumentException("Invalid FEN, expected at least 4 fields: " + fen);
+
+        clearBoard();
+        int row = 0;
+        int col = 0;
+        for (int i = 0; i < fields[0].length(); i++) {
+            char c = fields[0].charAt(i);
+            if (c == '/') {
+                if (col != COLS || ++row == ROWS) throw new IllegalArgumentException("Invalid FEN piece placement: " + fields[0]);
+                col = 0;
+            } else if (c >= '1' && c <= '8') {
+                col += c - '0';
+                if (col > COLS) throw new IllegalArgumentException("Invalid FEN piece placement: " + fields[0]);
+            } else {
+                int piece = PIECE_CHARS.indexOf(c);
+                if (piece == -1 || col >= COLS || pieceCounts[piece < 6 ? 0 : 1] == pieceSquares[0].length)
+                    throw new IllegalArgumentException("Invalid FEN piece placement: " + fields[0]);
+                putPiece(piece, Bitboard.square(row, col++));
+            }
+        }
+        if (row != ROWS - 1 || col != COLS)
+            throw new IllegalArgumentException("Invalid FEN piece placement, expected 8 ranks of 8 files: " + fields[0]);
+        if (Long.bitCount(bitboards[Bitboard.KING]) != 1 || Long.bitCount(bitboards[6 + Bitboard.KING]) != 1)
+            throw new IllegalArgumentException("Invalid FEN piece placement, expected one king per team: " + fields[0]);
+        if (((bitboards[Bitboard.PAWN] | bitboards[6 + Bitboard.PAWN]) & BACK_RANKS) != 0)
+            throw new IllegalArgumentException("Invalid FEN piece placement, pawn on the first or last rank: " + fields[0]);
+
+        sideToMove = switch (fields[1]) {
+            case "w" -> Color.WHITE;
+            case "b" -> Color.BLACK;
+            default -> throw new IllegalArgumentException("Invalid FEN side to move: " + fields[1]);
+        };
+        // The team that just moved cannot have left its king in check
+        if (isSquareAttacked(kingSquares[1 - sideToMove.ordinal()], sideToMove.ordinal()))
+            throw new IllegalArgumentException("Invalid FEN, the team not to move is in check: " + fen);
+
+        castlingRights = 0;
+        for (int i = 0; i < fields[2].length(); i++) {
+            castlingRights |= switch (fields[2].charAt(i)) {
+                case 'K' -> WHITE_KING_SIDE;
+                case 'Q' -> WHITE_QUEEN_SIDE;
+                case 'k' -> BLACK_KING_SIDE;
+                case 'q' -> BLACK_QUEEN_SIDE;
+                case '-' -> 0;
+                default -> throw new IllegalArgumentException("Invalid FEN castling rights: " + fields[2]);
+            };
+        }
+        if (mailbox[Bitboard.square(7, 4)] != Bitboard.KING) castlingRights &= ~(WHITE_KING_SIDE | WHITE_QUEEN_SIDE);
+        if (mailbox[Bitboard.square(7, 7)] != Bitboard.ROOK) castlingRights &= ~WHITE_KING_SIDE;
+        if (mailbox[Bitboard.square(7, 0)] != Bitboard.ROOK) castlingRights &= ~WHITE_QUEEN_SIDE;
+        if (mailbox[Bitboard.square(0, 4)] != 6 + Bitboard.KING) castlingRights &= ~(BLACK_KING_SIDE | BLACK_QUEEN_SIDE);
+        if (mailbox[Bitboard.square(0, 7)] != 6 + Bitboard.ROOK) castlingRights &= ~BLACK_KING_SIDE;
+        if (mailbox[Bitboard.square(0, 0)] != 6 + Bitboard.ROOK) castlingRights &= ~BLACK_QUEEN_SIDE;
+
+        enPassantSquare = -1;
+        if (!fields[3].equals("-")) {
+            if (fields[3].length() != 2 || fields[3].charAt(0) < 'a' || fields[3].charAt(0) > 'h' || fields[3].charAt(1) < '1' || fields[3].charAt(1) > '8')
+                throw new IllegalArgumentException("Invalid FEN en passant square: " + fields[3]);
+            enPassantSquare = Bitboard.square('8' - fields[3].charAt(1), fields[3].charAt(0) - 'a');
+            // The square behind a pawn that just double pushed, rank 6 when white is to move and rank 3 when black is
+            if (Bitboard.row(enPassantSquare) != (sideToMove == Color.WHITE ? 2 : 5))
+                throw new IllegalArgumentException("Invalid FEN en passant square for the side to move: " + fields[3]);
+        }
+
+        halfmoveClock = fields.length > 4 ? Integer.parseInt(fields[4]) : 0;
+        if (halfmoveClock < 0 || halfmoveClock > MAX_HALFMOVE_CLOCK)
+            throw new IllegalArgumentException("Invalid FEN halfmove clock: " + fields[4]);
+        int fullmoveNumber = fields.length > 5 ? Integer.parseInt(fields[5]) : 1;
+        if (fullmoveNumber < 1) throw new IllegalArgumentException("Invalid FEN fullmove number: " + fields[5]);
+        startPly = 2 * (fullmoveNumber - 1) + sideToMove.ordinal();
+
+        castled = 0;
+        kingMoved = 0;
+        if (mailbox[Bitboard.square(7, 4)] != Bitboard.KING) kingMoved |= 1;
+        if (mailbox[Bitboard.square(0, 4)] != 6 + Bitboard.KING) kingMoved |= 2;
+        historySize = 0;
+        skippedMoves = 0;
+        lastMove = null;
+        previousMove = null;
+        zobristKey = computeZobristKey();
+    }
+
+    /**
+     * Gets the position as a FEN string
+     *
+     * @return The position in Forsyth-Edwards Notation
+     */
+    public String toFen() {
+        StringBuilder fen = new StringBuilder(90);
         for (int row = 0; row < ROWS; row++) {
+            int empty = 0;
             for (int col = 0; col < COLS; col++) {
-                Piece thisPiece = pieces[row][col];
-                Piece otherPiece = other.getPieceAt(row, col);
-                if (thisPiece == null && otherPiece != null) {
-                    return false;
-                } else if (thisPiece != null && !thisPiece.equals(otherPiece)) {
-                    return false;
+                int piece = mailbox[Bitboard.square(row, col)];
+                if (piece == EMPTY) {
+                    empty++;
+                    continue;
                 }
+                if (empty > 0) fen.append(empty);
+                empty = 0;
+                fen.append(PIECE_CHARS.charAt(piece));
             }
+            if (empty > 0) fen.append(empty);
+            if (row < ROWS - 1) fen.append('/');
         }
-        return true;
+
+        fen.append(sideToMove == Color.WHITE ? " w " : " b ");
+
+        if (castlingRights == 0) fen.append('-');
+        if ((castlingRights & WHITE_KING_SIDE) != 0) fen.append('K');
+        if ((castlingRights & WHITE_QUEEN_SIDE) != 0) fen.append('Q');
+        if ((castlingRights & BLACK_KING_SIDE) != 0) fen.append('k');
+        if ((castlingRights & BLACK_QUEEN_SIDE) != 0) fen.append('q');
+
+        fen.append(' ');
+        if (enPassantSquare == -1) fen.append('-');
+        else fen.append((char) ('a' + Bitboard.col(enPassantSquare))).append((char) ('8' - Bitboard.row(enPassantSquare)));
+
+        return fen.append(' ').append(halfmoveClock).append(' ').append((startPly + historySize) / 2 + 1).toString();
     }
 
     /**
-     * Initializes the zobrist table
+     * Helper for setFen that empties the mailbox, bitboards and piece lists
      */
+    private void clearBoard() {
+        Arrays.fill(bitboards, 0L);
+        Arrays.fill(colorOccupancy, 0L);
+        occupied = 0L;
+        Arrays.fill(mailbox, EMPTY);
+        Arrays.fill(pieceCounts, 0);
+        Arrays.fill(kingSquares, -1);
+        materialKey = 0L;
+    }
 
-    private void initZobristTable() {
-        Random rand = new Random();
-        zobristTable = new long[12][8][8]; // 12 unique piece types (6 for each color), 8 rows, 8 cols
-        for (int piece = 0; piece < 12; piece++) {
-            for (int row = 0; row < 8; row++) {
-                for (int col = 0; col < 8; col++) {
-                    zobristTable[piece][row][col] = rand.nextLong();
-                }
-            }
-        }
+    /**
+     * Puts a piece on an empty square, keeping the mailbox, bitboards and piece lists in sync.
+     * The zobrist key is left to the caller.
+     *
+     * @param piece  The piece index
+     * @param square The square to place the piece on
+     */
+    private void putPiece(int piece, int square) {
+        int color = piece < 6 ? 0 : 1;
+        long bit = Bitboard.bit(square);
+        bitboards[piece] |= bit;
+        colorOccupancy[color] |= bit;
+        occupied |= bit;
+        mailbox[square] = piece;
+
+        pieceListIndex[square] = pieceCounts[color];
+        pieceSquares[color][pieceCounts[color]++] = square;
+        if (piece % 6 == Bitboard.KING) kingSquares[color] = square;
+        materialKey += materialKey(piece);
+    }
+
+    /**
+     * Clears a square holding a known piece, keeping the mailbox, bitboards and piece lists in sync.
+     * The zobrist key is left to the caller.
+     *
+     * @param piece  The piece index on the square
+     * @param square The square to clear
+     */
+    private void clearPiece(int piece, int square) {
+        int color = piece < 6 ? 0 : 1;
+        long bit = ~Bitboard.bit(square);
+        bitboards[piece] &= bit;
+        colorOccupancy[color] &= bit;
+        occupied &= bit;
+        mailbox[square] = EMPTY;
+
+        // Fill the gap with the last square in the list
+        int lastSquare = pieceSquares[color][--pieceCounts[color]];
+        pieceSquares[color][pieceListIndex[square]] = lastSquare;
+        pieceListIndex[lastSquare] = pieceListIndex[square];
+        if (piece % 6 == Bitboard.KING) kingSquares[color] = -1;
+        materialKey -= materialKey(piece);
+    }
+
+    /**
+     * Moves a piece to an empty square, keeping the mailbox, bitboards and piece lists in sync.
+     * The zobrist key is left to the caller.
+     *
+     * @param piece The piece index
+     * @param from  The square the piece is on
+     * @param to    The empty square to move it to
+     */
+    private void movePiece(int piece, int from, int to) {
+        int color = piece < 6 ? 0 : 1;
+        long bits = Bitboard.bit(from) | Bitboard.bit(to);
+        bitboards[piece] ^= bits;
+        colorOccupancy[color] ^= bits;
+        occupied ^= bits;
+        mailbox[from] = EMPTY;
+        mailbox[to] = piece;
+
+        int index = pieceListIndex[from];
+        pieceSquares[color][index] = to;
+        pieceListIndex[to] = index;
+        if (piece % 6 == Bitboard.KING) kingSquares[color] = to;
+    }
+
+    /**
+     * Gets the occupancy bitboard for a piece index (see {@link Utility#pieceToIndex(Piece)})
+     *
+     * @param pieceIndex The piece index
+     * @return The squares occupied by that piece type
+     */
+    public long getBitboard(int pieceIndex) {
+        return bitboards[pieceIndex];
+    }
+
+    /**
+     * Gets the occupancy bitboard for a team
+     *
+     * @param color The team
+     * @return The squares occupied by the team
+     */
+    public long getOccupancy(Color color) {
+        return colorOccupancy[color.ordinal()];
+    }
+
+    /**
+     * Gets the occupancy bitboard for both teams
+     *
+     * @return All occupied squares
+     */
+    public long getOccupied() {
+        return occupied;
+    }
+
+    /**
+     * Gets the piece index on a square
+     *
+     * @param square The square index
+     * @return The piece index, EMPTY if the square is empty
+     */
+    public int getPieceIndex(int square) {
+        return mailbox[square];
     }
 
     /**
@@ -137,6 +634,10 @@ public class Board  {
      * @return the piece list for this board
      */
     public Piece[][] getPieces() {
+        Piece[][] pieces = new Piece[ROWS][COLS];
+        for (int row = 0; row < ROWS; row++)
+            for (int col = 0; col < COLS; col++)
+                pieces[row][col] = getPieceAt(row, col);
         return pieces;
     }
 
@@ -148,7 +649,9 @@ public class Board  {
      * @return The piece at the row and col
      */
     public Piece getPieceAt(int row, int col) {
-        return pieces[row][col];
+        int square = Bitboard.square(row, col);
+        int piece = mailbox[square];
+        return piece == EMPTY ? null : Utility.getPiece(piece, square);
     }
 
     /**
@@ -158,17 +661,75 @@ public class Board  {
      * @return The king, null otherwise.
      */
     public King getKing(Color color) {
-        for (int i = 0; i < ROWS; i++) {
-            for (int j = 0; j < COLS; j++) {
-                Piece piece = getPieceAt(i, j);
-                if (piece instanceof King) {
-                    if (piece.getColor() == color) {
-                        return (King) piece;
-                    }
-                }
-            }
+        int square = kingSquares[color.ordinal()];
+        if (square == -1) return null;
+
+        return (King) Utility.getPiece(color.ordinal() * 6 + Bitboard.KING, square);
+    }
+
+    /**
+     * Gets the square of a team's king
+     *
+     * @param color The team of the king
+     * @return The king square, -1 if the team has no king
+     */
+    public int getKingSquare(Color color) {
+        return kingSquares[color.ordinal()];
+    }
+
+    /**
+     * Gets the number of pieces a team has on the board, kings included
+     *
+     * @param color The team
+     * @return The number of pieces
+     */
+    public int getPieceCount(Color color) {
+        return pieceCounts[color.ordinal()];
+    }
+
+    /**
+     * Gets the material signature of the position: the count of each piece index packed into 4 bits,
+     * kept up to date as pieces are put and cleared. Equal signatures mean equal material.
+     *
+     * @return The material key
+     */
+    public long getMaterialKey() {
+        return materialKey;
+    }
+
+    /**
+     * Gets the material key of a single piece
+     *
+     * @param pieceIndex The piece index
+     * @return The amount one piece of that index adds to the material key
+     */
+    public static long materialKey(int pieceIndex) {
+        return 1L << (pieceIndex << 2);
+    }
+
+    /**
+     * Checks whether neither team has enough material left to deliver mate,
+     * by comparing the material key against the known drawn signatures
+     *
+     * @return Whether the position is a draw by insufficient material
+     */
+    public boolean isInsufficientMaterial() {
+        for (long key : INSUFFICIENT_MATERIAL) {
+            if (materialKey == key) return true;
         }
-        return null;
+        return false;
+    }
+
+    /**
+     * Gets the square of one of a team's pieces. Together with getPieceCount this walks a team's pieces
+     * without allocating; the order is arbitrary and changes as moves are made.
+     *
+     * @param color The team
+     * @param index The list index, from 0 to getPieceCount(color) - 1
+     * @return The square of the piece
+     */
+    public int getPieceSquare(Color color, int index) {
+        return pieceSquares[color.ordinal()][index];
     }
 
     /**
@@ -181,13 +742,58 @@ public class Board  {
     }
 
     /**
-     * Used to save previous moves and board positions
-     * Also used to determine threefold repetition draw
+     * Gets the number of plies since the last capture or pawn move
+     *
+     * @return the halfmove clock
      */
-    private void updatePositionHistory() {
-        int positionHashCode = this.hashCode();
-        positionHistory.put(positionHashCode, positionHistory.getOrDefault(positionHashCode, 0) + 1);
+    public int getHalfmoveClock() {
+        return halfmoveClock;
     }
+
+    /**
+     * Checks whether the current position already occurred since the last capture or pawn move.
+     * Only every second earlier key can match, since the same team must be to move, and the scan stops
+     * at the last irreversible move, so it costs at most halfmoveClock / 2 comparisons and never allocates.
+     *
+     * @return Whether the position is a repetition
+     */
+    public boolean isRepetition() {
+        return countRepetitions(1) >= 1;
+    }
+
+    /**
+     * Checks whether the current position has occurred twice before, a threefold repetition draw
+     *
+     * @return Whether the position is a threefold repetition
+     */
+    public boolean isThreefoldRepetition() {
+        return countRepetitions(2) >= 2;
+    }
+
+    /**
+     * Checks whether fifty moves by each team were played without a capture or pawn move
+     *
+     * @return Whether the fifty move rule applies
+     */
+    public boolean isFiftyMoveDraw() {
+        return halfmoveClock >= 100;
+    }
+
+    /**
+     * Helper for isRepetition and isThreefoldRepetition that counts earlier occurrences of the current key
+     *
+     * @param limit The count to stop at
+     * @return The number of earlier occurrences found, at most limit
+     */
+    private int countRepetitions(int limit) {
+        int count = 0;
+        int end = Math.min(halfmoveClock, historySize);
+        for (int plies = 4; plies <= end; plies += 2) {
+            if (keyHistory[historySize - plies] == zobristKey && ++count >= limit) break;
+        }
+        return count;
+    }
+
     /**
      * Makes a move on the board
      *
@@ -199,38 +805,13 @@ public class Board  {
             lastMove = move;
         }
 
-        int toRow = move.getToRow();
-        int fromRow = move.getFromRow();
-        int toCol = move.getToCol();
-        int fromCol = move.getFromCol();
-        Piece piece = move.getPiece();
-
         if (flag == Flag.NORMAL) {
             GUI.gameNotation += move.toNotation() + " ";
-            updatePositionHistory();
         }
 
-            if (Utility.isMoveCastle(move)) {
-                makeCastleMove(move);
-            } else {
-                pieces[toRow][toCol] = piece;
-                pieces[fromRow][fromCol] = null;
-
-                move.setSourcePieceHasMoved(move.getPiece().hasMoved());
-
-                if (Utility.isMoveCapture(this, move)) {
-                    move.setCapturePieceHasMoved(move.getCapturedPiece().hasMoved());
-                    move.getCapturedPiece().setCaptured(true);
-                }
-
-                piece.setMoved(true);
-                piece.setPosition(toRow, toCol);
-
-                // Handle pawn promotion
-                if (Utility.isPromotionMove(move)) {
-                    pieces[toRow][toCol] = move.getPromotionPiece();
-                }
-            }
+        int packedMove = encodeMove(move);
+        move.setPackedMove(packedMove);
+        makeMove(packedMove);
     }
 
 
@@ -240,85 +821,594 @@ public class Board  {
      * @param move The move to undo
      */
     public void undoMove(Move move) {
-        int fromRow = move.getFromRow();
-        int fromCol = move.getFromCol();
-        int toRow = move.getToRow();
-        int toCol = move.getToCol();
-        Piece movedPiece = move.getPiece();
-
-        if (Utility.isMoveCastle(move)) {
-                undoCastleMove(move);
+        undoMove(move.getPackedMove());
+    }
+
+    /**
+     * Makes a packed move on the board, see {@link PackedMove}
+     *
+     * @param move The packed move to make
+     */
+    public void makeMove(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int piece = PackedMove.piece(move);
+        int captured = PackedMove.captured(move);
+        int flag = PackedMove.flag(move);
+
+        pushState(captured);
+        setEnPassantSquare(-1);
+        halfmoveClock = captured != EMPTY || piece % 6 == Bitboard.PAWN ? 0 : halfmoveClock + 1;
+
+        if (captured != EMPTY) {
+            int captureSquare = flag == PackedMove.EN_PASSANT ? enPassantVictimSquare(to, piece) : to;
+            clearPiece(captured, captureSquare);
+            zobristKey ^= ZOBRIST_PIECES[captured][captureSquare];
+        }
+
+        int placed = piece;
+        if (flag == PackedMove.PROMOTION) {
+            placed = (piece - Bitboard.PAWN) + PackedMove.promotionType(move);
+            clearPiece(piece, from);
+            putPiece(placed, to);
         } else {
-                pieces[fromRow][fromCol] = movedPiece;
-                pieces[toRow][toCol] = move.getCapturedPiece();
+            movePiece(piece, from, to);
+        }
+        zobristKey ^= ZOBRIST_PIECES[piece][from] ^ ZOBRIST_PIECES[placed][to];
+
+        if (flag == PackedMove.CASTLE) {
+            int rook = piece - Bitboard.KING + Bitboard.ROOK;
+            int rookFrom = to > from ? from + 3 : from - 4;
+            int rookTo = to > from ? from + 1 : from - 1;
+            movePiece(rook, rookFrom, rookTo);
+            zobristKey ^= ZOBRIST_PIECES[rook][rookFrom] ^ ZOBRIST_PIECES[rook][rookTo];
+            castled |= 1 << sideToMove.ordinal();
+        } else if ((piece == Bitboard.PAWN || piece == Bitboard.PAWN + 6) && Math.abs(to - from) == 16) {
+            setEnPassantSquare((from + to) >>> 1);
+        }
 
-                if (Utility.isMoveCapture(this, move)) {
-                    move.getCapturedPiece().setMoved(move.getCapturedPieceHasMoved());
-                    move.getCapturedPiece().setCaptured(false);
-                    move.getCapturedPiece().setPosition(toRow, toCol);
-                }
+        if (piece % 6 == Bitboard.KING) kingMoved |= 1 << sideToMove.ordinal();
+
+        updateCastlingRights(from, to);
+        switchSideToMove();
+    }
+
+    /**
+     * Undoes a packed move made by makeMove(int)
+     *
+     * @param move The packed move to undo
+     */
+    public void undoMove(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int piece = PackedMove.piece(move);
+        int captured = ((stateHistory[historySize - 1] >>> 13) & 15) - 1;
+        int flag = PackedMove.flag(move);
+
+        if (flag == PackedMove.PROMOTION) {
+            clearPiece(mailbox[to], to);
+            putPiece(piece, from);
+        } else {
+            movePiece(piece, to, from);
+        }
+
+        if (captured != EMPTY)
+            putPiece(captured, flag == PackedMove.EN_PASSANT ? enPassantVictimSquare(to, piece) : to);
 
-                movedPiece.setMoved(move.getSourcePieceHasMoved());
-                movedPiece.setPosition(fromRow, fromCol);
+        if (flag == PackedMove.CASTLE) {
+            int rook = piece - Bitboard.KING + Bitboard.ROOK;
+            movePiece(rook, to > from ? from + 1 : from - 1, to > from ? from + 3 : from - 4);
+        }
+
+        popState();
+    }
+
+    /**
+     * Gets the square of the pawn captured by an en passant move
+     */
+    private static int enPassantVictimSquare(int to, int pawn) {
+        return pawn == Bitboard.PAWN ? to + 8 : to - 8;
+    }
+
+    /**
+     * Generates all legal packed moves for the team to move
+     *
+     * @param moves The buffer to write the moves into, at least MAX_MOVES long
+     * @return The number of moves written
+     */
+    public int generateLegalMoves(int[] moves) {
+        return generateLegalMoves(moves, ALL_MOVES);
+    }
+
+    /**
+     * Generates legal packed moves of one kind for the team to move.
+     * Noisy moves are captures, en passant and promotions, quiet moves are everything else including castling.
+     * Checkers and pinned pieces are found once up front, so every move is emitted legal without making it.
+     *
+     * @param moves The buffer to write the moves into, at least MAX_MOVES long
+     * @param kind  ALL_MOVES, NOISY_MOVES or QUIET_MOVES
+     * @return The number of moves written
+     */
+    public int generateLegalMoves(int[] moves, int kind) {
+        int us = sideToMove.ordinal();
+        int them = 1 - us;
+        int kingSquare = kingSquares[us];
+        if (kingSquare == -1) return kind == ALL_MOVES ? generateMoves(moves) : 0;
+
+        long king = Bitboard.bit(kingSquare);
+        long checkers = attackersTo(kingSquare, them, occupied);
+        int count = 0;
+
+        // The king is taken off the board so it cannot hide behind itself on a checking ray
+        long kindMask = kind == NOISY_MOVES ? colorOccupancy[them] : kind == QUIET_MOVES ? ~occupied : ~0L;
+        long kingTargets = Bitboard.KING_ATTACKS[kingSquare] & ~colorOccupancy[us] & kindMask;
+        long occupiedWithoutKing = occupied ^ king;
+        while (kingTargets != 0) {
+            int to = Bitboard.lsb(kingTargets);
+            if (attackersTo(to, them, occupiedWithoutKing) == 0)
+                moves[count++] = PackedMove.encode(kingSquare, to, us * 6 + Bitboard.KING, mailbox[to], 0, PackedMove.NORMAL);
+            kingTargets &= kingTargets - 1;
+        }
+
+        // Only the king can answer a double check
+        if ((checkers & (checkers - 1)) != 0) return count;
+
+        long checkMask = checkers == 0 ? ~0L : checkers | Bitboard.BETWEEN[kingSquare][Bitboard.lsb(checkers)];
+        count = generatePieceMoves(moves, count, us, checkMask, getPinnedPieces(kingSquare, us), kingSquare, kind);
+
+        if (checkers == 0 && kind != NOISY_MOVES) count = generateCastleMoves(moves, count, us, kingSquare);
+        return count;
+    }
+
+    /**
+     * Generates all sudo legal packed moves for the team to move.
+     * Castling is only generated when the king and the squares it crosses are not attacked.
+     *
+     * @param moves The buffer to write the moves into, at least MAX_MOVES long
+     * @return The number of moves written
+     */
+    public int generateMoves(int[] moves) {
+        int us = sideToMove.ordinal();
+        int count = generatePieceMoves(moves, 0, us, ~0L, 0L, -1, ALL_MOVES);
+
+        int from = kingSquares[us];
+        if (from != -1) {
+            count = addMoves(moves, count, from, us * 6 + Bitboard.KING, Bitboard.KING_ATTACKS[from] & ~colorOccupancy[us]);
+            count = generateCastleMoves(moves, count, us, from);
+        }
+        return count;
+    }
+
+    /**
+     * Helper for generateMoves and generateLegalMoves that adds every move except king moves.
+     * Targets are limited to the check mask, and pinned pieces to the line through their king.
+     *
+     * @param checkMask  The squares that resolve a single check, all squares when not in check
+     * @param pinned     The pieces pinned to their king
+     * @param kingSquare The king square, -1 to skip the en passant discovered check test
+     * @param kind       ALL_MOVES, NOISY_MOVES or QUIET_MOVES
+     */
+    private int generatePieceMoves(int[] moves, int count, int us, long checkMask, long pinned, int kingSquare, int kind) {
+        int base = us * 6;
+        long targets = ~colorOccupancy[us] & checkMask;
+        if (kind == NOISY_MOVES) targets &= colorOccupancy[1 - us];
+        else if (kind == QUIET_MOVES) targets &= ~occupied;
+
+        count = generatePawnMoves(moves, count, us, checkMask, pinned, kingSquare, kind);
+
+        // A pinned knight can never move along its pin line
+        long knights = bitboards[base + Bitboard.KNIGHT] & ~pinned;
+        while (knights != 0) {
+            int from = Bitboard.lsb(knights);
+            count = addMoves(moves, count, from, base + Bitboard.KNIGHT, Bitboard.KNIGHT_ATTACKS[from] & targets);
+            knights &= knights - 1;
+        }
+
+        long bishops = bitboards[base + Bitboard.BISHOP];
+        while (bishops != 0) {
+            int from = Bitboard.lsb(bishops);
+            long attacks = Bitboard.bishopAttacks(from, occupied) & targets & pinMask(from, pinned, kingSquare);
+            count = addMoves(moves, count, from, base + Bitboard.BISHOP, attacks);
+            bishops &= bishops - 1;
+        }
+
+        long rooks = bitboards[base + Bitboard.ROOK];
+        while (rooks != 0) {
+            int from = Bitboard.lsb(rooks);
+            long attacks = Bitboard.rookAttacks(from, occupied) & targets & pinMask(from, pinned, kingSquare);
+            count = addMoves(moves, count, from, base + Bitboard.ROOK, attacks);
+            rooks &= rooks - 1;
+        }
+
+        long queens = bitboards[base + Bitboard.QUEEN];
+        while (queens != 0) {
+            int from = Bitboard.lsb(queens);
+            long attacks = Bitboard.queenAttacks(from, occupied) & targets & pinMask(from, pinned, kingSquare);
+            count = addMoves(moves, count, from, base + Bitboard.QUEEN, attacks);
+            queens &= queens - 1;
+        }
+        return count;
+    }
+
+    /**
+     * Helper for generateMoves that adds a move for every target square
+     */
+    private int addMoves(int[] moves, int count, int from, int piece, long targets) {
+        while (targets != 0) {
+            int to = Bitboard.lsb(targets);
+            moves[count++] = PackedMove.encode(from, to, piece, mailbox[to], 0, PackedMove.NORMAL);
+            targets &= targets - 1;
+        }
+        return count;
+    }
+
+    /**
+     * Helper for generatePieceMoves that adds pushes, captures, promotions and en passant for every pawn
+     */
+    private int generatePawnMoves(int[] moves, int count, int us, long checkMask, long pinned, int kingSquare, int kind) {
+        int pawn = us * 6 + Bitboard.PAWN;
+        int direction = us == 0 ? -8 : 8;
+        int startRow = us == 0 ? 6 : 1;
+        int promotionRow = us == 0 ? 1 : 6;
+        boolean noisy = kind != QUIET_MOVES;
+        boolean quiet = kind != NOISY_MOVES;
+        long enemies = colorOccupancy[1 - us];
+        long pawns = bitboards[pawn];
+
+        while (pawns != 0) {
+            int from = Bitboard.lsb(pawns);
+            long allowed = checkMask & pinMask(from, pinned, kingSquare);
+            int push = from + direction;
+
+            // Pushes onto the last row promote, so they count as noisy
+            if (mailbox[push] == EMPTY && (Bitboard.row(from) == promotionRow ? noisy : quiet)) {
+                if ((allowed & Bitboard.bit(push)) != 0)
+                    count = addPawnMove(moves, count, from, push, pawn, EMPTY);
+                int doublePush = push + direction;
+                if (Bitboard.row(from) == startRow && mailbox[doublePush] == EMPTY && (allowed & Bitboard.bit(doublePush)) != 0)
+                    moves[count++] = PackedMove.encode(from, doublePush, pawn, EMPTY, 0, PackedMove.NORMAL);
+            }
+
+            long captures = noisy ? Bitboard.PAWN_ATTACKS[us][from] & enemies & allowed : 0L;
+            while (captures != 0) {
+                int to = Bitboard.lsb(captures);
+                count = addPawnMove(moves, count, from, to, pawn, mailbox[to]);
+                captures &= captures - 1;
             }
+
+            if (noisy && enPassantSquare != -1 && (Bitboard.PAWN_ATTACKS[us][from] & Bitboard.bit(enPassantSquare)) != 0
+                    && isEnPassantLegal(from, pawn, checkMask, pinned, kingSquare))
+                moves[count++] = PackedMove.encode(from, enPassantSquare, pawn, 6 - pawn, 0, PackedMove.EN_PASSANT);
+
+            pawns &= pawns - 1;
+        }
+        return count;
+    }
+
+    /**
+     * Helper for generatePawnMoves that checks an en passant capture against the check mask, pins,
+     * and the discovered check along the row both pawns leave
+     */
+    private boolean isEnPassantLegal(int from, int pawn, long checkMask, long pinned, int kingSquare) {
+        if (kingSquare == -1) return true;
+
+        int victim = enPassantVictimSquare(enPassantSquare, pawn);
+        long to = Bitboard.bit(enPassantSquare);
+        if ((checkMask & (to | Bitboard.bit(victim))) == 0 || (pinMask(from, pinned, kingSquare) & to) == 0)
+            return false;
+
+        int them = 6 - (pawn - Bitboard.PAWN);
+        long occupiedAfter = (occupied ^ Bitboard.bit(from) ^ Bitboard.bit(victim)) | to;
+        long queens = bitboards[them + Bitboard.QUEEN];
+        return (Bitboard.rookAttacks(kingSquare, occupiedAfter) & (bitboards[them + Bitboard.ROOK] | queens)) == 0 &&
+                (Bitboard.bishopAttacks(kingSquare, occupiedAfter) & (bitboards[them + Bitboard.BISHOP] | queens)) == 0;
+    }
+
+    /**
+     * Helper for generatePieceMoves that limits a pinned piece to the line through its king
+     */
+    private static long pinMask(int from, long pinned, int kingSquare) {
+        return (pinned & Bitboard.bit(from)) == 0 ? ~0L : Bitboard.LINE[kingSquare][from];
+    }
+
+    /**
+     * Helper for generatePawnMoves that expands moves onto the last row into the four promotions
+     */
+    private static int addPawnMove(int[] moves, int count, int from, int to, int pawn, int captured) {
+        int row = Bitboard.row(to);
+        if (row == 0 || row == 7) {
+            for (int type = Bitboard.QUEEN; type >= Bitboard.KNIGHT; type--)
+                moves[count++] = PackedMove.encode(from, to, pawn, captured, type, PackedMove.PROMOTION);
+        } else {
+            moves[count++] = PackedMove.encode(from, to, pawn, captured, 0, PackedMove.NORMAL);
+        }
+        return count;
+    }
+
+    /**
+     * Helper for generateMoves that adds castle moves when the rights remain, the path is clear and not attacked
+     */
+    private int generateCastleMoves(int[] moves, int count, int us, int kingSquare) {
+        int kingSide = us == 0 ? WHITE_KING_SIDE : BLACK_KING_SIDE;
+        int queenSide = us == 0 ? WHITE_QUEEN_SIDE : BLACK_QUEEN_SIDE;
+        if ((castlingRights & (kingSide | queenSide)) == 0 || isSquareAttacked(kingSquare, 1 - us))
+            return count;
+
+        int king = us * 6 + Bitboard.KING;
+        if ((castlingRights & kingSide) != 0
+                && (occupied & (Bitboard.bit(kingSquare + 1) | Bitboard.bit(kingSquare + 2))) == 0
+                && !isSquareAttacked(kingSquare + 1, 1 - us) && !isSquareAttacked(kingSquare + 2, 1 - us))
+            moves[count++] = PackedMove.encode(kingSquare, kingSquare + 2, king, EMPTY, 0, PackedMove.CASTLE);
+
+        if ((castlingRights & queenSide) != 0
+                && (occupied & (Bitboard.bit(kingSquare - 1) | Bitboard.bit(kingSquare - 2) | Bitboard.bit(kingSquare - 3))) == 0
+                && !isSquareAttacked(kingSquare - 1, 1 - us) && !isSquareAttacked(kingSquare - 2, 1 - us))
+            moves[count++] = PackedMove.encode(kingSquare, kingSquare - 2, king, EMPTY, 0, PackedMove.CASTLE);
+
+        return count;
+    }
+
+    /**
+     * Finds the pieces of a team that are pinned to their king by an enemy slider
+     *
+     * @param kingSquare The square of the team's king
+     * @param us         The color index of the team
+     * @return The pinned pieces
+     */
+    public long getPinnedPieces(int kingSquare, int us) {
+        int them = (1 - us) * 6;
+        long queens = bitboards[them + Bitboard.QUEEN];
+        long enemies = colorOccupancy[1 - us];
+        long snipers = (Bitboard.rookAttacks(kingSquare, enemies) & (bitboards[them + Bitboard.ROOK] | queens)) |
+                (Bitboard.bishopAttacks(kingSquare, enemies) & (bitboards[them + Bitboard.BISHOP] | queens));
+
+        long pinned = 0L;
+        while (snipers != 0) {
+            long blockers = Bitboard.BETWEEN[kingSquare][Bitboard.lsb(snipers)] & occupied;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0)
+                pinned |= blockers & colorOccupancy[us];
+            snipers &= snipers - 1;
         }
+        return pinned;
+    }
 
     /**
-     * A helper method for makeMove that handles castle moves
+     * Gets every piece of a team attacking a square
      *
-     * @param move The castle move to make
+     * @param square   The square to check
+     * @param attacker The color index (0 white, 1 black) of the attacking team
+     * @param occupied The occupancy to use for sliding attacks
+     * @return The attacking pieces
      */
-    private void makeCastleMove(Move move) {
-        int fromRow = move.getFromRow();
-        int fromCol = move.getFromCol();
-        int toRow = move.getToRow();
-        int toCol = move.getToCol();
+    public long attackersTo(int square, int attacker, long occupied) {
+        int base = attacker * 6;
+        long queens = bitboards[base + Bitboard.QUEEN];
+        return (Bitboard.PAWN_ATTACKS[1 - attacker][square] & bitboards[base + Bitboard.PAWN]) |
+                (Bitboard.KNIGHT_ATTACKS[square] & bitboards[base + Bitboard.KNIGHT]) |
+                (Bitboard.KING_ATTACKS[square] & bitboards[base + Bitboard.KING]) |
+                (Bitboard.bishopAttacks(square, occupied) & (bitboards[base + Bitboard.BISHOP] | queens)) |
+                (Bitboard.rookAttacks(square, occupied) & (bitboards[base + Bitboard.ROOK] | queens));
+    }
+
+    /**
+     * Checks if a square is attacked by a team
+     *
+     * @param square   The square to check
+     * @param attacker The color index (0 white, 1 black) of the attacking team
+     * @return A boolean stating whether the square is attacked
+     */
+    public boolean isSquareAttacked(int square, int attacker) {
+        int base = attacker * 6;
+        if ((Bitboard.PAWN_ATTACKS[1 - attacker][square] & bitboards[base + Bitboard.PAWN]) != 0) return true;
+        if ((Bitboard.KNIGHT_ATTACKS[square] & bitboards[base + Bitboard.KNIGHT]) != 0) return true;
+        if ((Bitboard.KING_ATTACKS[square] & bitboards[base + Bitboard.KING]) != 0) return true;
+
+        long queens = bitboards[base + Bitboard.QUEEN];
+        return (Bitboard.bishopAttacks(square, occupied) & (bitboards[base + Bitboard.BISHOP] | queens)) != 0 ||
+                (Bitboard.rookAttacks(square, occupied) & (bitboards[base + Bitboard.ROOK] | queens)) != 0;
+    }
+
+    /**
+     * Static exchange evaluation: the material a capture wins or loses once every piece attacking the target
+     * square has recaptured, cheapest first, each side free to stop when recapturing would lose more.
+     * Sliders uncovered behind a capturing piece join the exchange (x-rays). Pins are ignored.
+     * Works on bitboards and a preallocated swap list, so it does not allocate.
+     *
+     * @param move The packed move to evaluate, normally a capture
+     * @return The expected material gain for the moving team, in piece values (see Utility#getValueByIndex)
+     */
+    public int see(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int piece = PackedMove.piece(move);
+        int flag = PackedMove.flag(move);
+        if (flag == PackedMove.CASTLE) return 0;
+
+        long occ = occupied ^ Bitboard.bit(from);
+        int captured = PackedMove.captured(move);
+        int gain = captured == EMPTY ? 0 : Utility.getValueByIndex(captured);
+        int attackerValue = Utility.getValueByIndex(piece);
+        if (flag == PackedMove.EN_PASSANT) {
+            occ ^= Bitboard.bit(enPassantVictimSquare(to, piece));
+        } else if (flag == PackedMove.PROMOTION) {
+            attackerValue = Utility.getValueByIndex(PackedMove.promotionType(move));
+            gain += attackerValue - Utility.getValueByIndex(Bitboard.PAWN);
+        }
+
+        long bishops = bitboards[Bitboard.BISHOP] | bitboards[6 + Bitboard.BISHOP] | bitboards[Bitboard.QUEEN] | bitboards[6 + Bitboard.QUEEN];
+        long rooks = bitboards[Bitboard.ROOK] | bitboards[6 + Bitboard.ROOK] | bitboards[Bitboard.QUEEN] | bitboards[6 + Bitboard.QUEEN];
+        long attackers = (attackersTo(to, 0, occ) | attackersTo(to, 1, occ)) & occ;
+        int side = piece < 6 ? 1 : 0;
+        int depth = 0;
+        seeGains[0] = gain;
+
+        while (true) {
+            // Speculative score if the piece just moved to the square is taken back
+            depth++;
+            seeGains[depth] = attackerValue - seeGains[depth - 1];
+            if (Math.max(-seeGains[depth - 1], seeGains[depth]) < 0) break;
+
+            long own = attackers & colorOccupancy[side];
+            if (own == 0) break;
+            int type = Bitboard.PAWN;
+            while ((own & bitboards[side * 6 + type]) == 0) type++;
+            // The king may only recapture when nothing can take it back
+            if (type == Bitboard.KING && (attackers & colorOccupancy[1 - side]) != 0) break;
+
+            long fromBit = Long.lowestOneBit(own & bitboards[side * 6 + type]);
+            occ ^= fromBit;
+            attackers = (attackers | (Bitboard.bishopAttacks(to, occ) & bishops) | (Bitboard.rookAttacks(to, occ) & rooks)) & occ;
+            attackerValue = Utility.getValueByIndex(type);
+            side = 1 - side;
+        }
 
-        int rookToCol = (toCol > fromCol) ? toCol - 1 : toCol + 1;
-        int rookCol = (toCol > fromCol) ? 7 : 0;
+        while (--depth > 0)
+            seeGains[depth - 1] = -Math.max(-seeGains[depth - 1], seeGains[depth]);
+        return seeGains[0];
+    }
 
-        Piece rook = getPieceAt(fromRow, rookCol);
-        Piece king = move.getPiece();
+    /**
+     * Checks that a packed move remembered from another position, such as a hash or killer move, is legal here
+     *
+     * @param move The packed move to check
+     * @return A boolean stating whether the move can be made in this position
+     */
+    public boolean isLegalMove(int move) {
+        if (move == PackedMove.NONE) return false;
+
+        int us = sideToMove.ordinal();
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int piece = PackedMove.piece(move);
+        int captured = PackedMove.captured(move);
+        int flag = PackedMove.flag(move);
+        int type = piece % 6;
+
+        if (piece / 6 != us || mailbox[from] != piece) return false;
+        if (captured != EMPTY && captured / 6 == us) return false;
+
+        if (flag == PackedMove.EN_PASSANT) {
+            if (type != Bitboard.PAWN || to != enPassantSquare || (Bitboard.PAWN_ATTACKS[us][from] & Bitboard.bit(to)) == 0)
+                return false;
+        } else if (mailbox[to] != captured) {
+            return false;
+        } else if (flag == PackedMove.CASTLE) {
+            // Castling rights are only kept while the king and rook are on their starting squares
+            boolean kingSide = to == from + 2;
+            if (type != Bitboard.KING || (!kingSide && to != from - 2)) return false;
+            int right = us == 0 ? (kingSide ? WHITE_KING_SIDE : WHITE_QUEEN_SIDE) : (kingSide ? BLACK_KING_SIDE : BLACK_QUEEN_SIDE);
+            int step = kingSide ? 1 : -1;
+            long path = kingSide ? Bitboard.bit(from + 1) | Bitboard.bit(from + 2)
+                    : Bitboard.bit(from - 1) | Bitboard.bit(from - 2) | Bitboard.bit(from - 3);
+            return (castlingRights & right) != 0 && (occupied & path) == 0 && !isSquareAttacked(from, 1 - us)
+                    && !isSquareAttacked(from + step, 1 - us) && !isSquareAttacked(from + 2 * step, 1 - us);
+        } else if (type == Bitboard.PAWN) {
+            int direction = us == 0 ? -8 : 8;
+            boolean lastRow = Bitboard.row(to) == 0 || Bitboard.row(to) == 7;
+            if (lastRow != (flag == PackedMove.PROMOTION)) return false;
+
+            boolean reachable;
+            if (captured != EMPTY) reachable = (Bitboard.PAWN_ATTACKS[us][from] & Bitboard.bit(to)) != 0;
+            else if (to == from + direction) reachable = true;
+            else reachable = to == from + 2 * direction && Bitboard.row(from) == (us == 0 ? 6 : 1) && mailbox[from + direction] == EMPTY;
+            if (!reachable) return false;
+        } else {
+            if (flag != PackedMove.NORMAL) return false;
+            long attacks = switch (type) {
+                case Bitboard.KNIGHT -> Bitboard.KNIGHT_ATTACKS[from];
+                case Bitboard.BISHOP -> Bitboard.bishopAttacks(from, occupied);
+                case Bitboard.ROOK -> Bitboard.rookAttacks(from, occupied);
+                case Bitboard.QUEEN -> Bitboard.queenAttacks(from, occupied);
+                default -> Bitboard.KING_ATTACKS[from];
+            };
+            if ((attacks & Bitboard.bit(to)) == 0) return false;
+        }
 
-        pieces[toRow][toCol] = king;
-        king.setPosition(toRow, toCol);
-        pieces[fromRow][fromCol] = null;
-        king.setMoved(true);
-        ((King) king).setHasCastled(true);
+        makeMove(move);
+        boolean legal = !isSquareAttacked(kingSquares[us], 1 - us);
+        undoMove(move);
+        return legal;
+    }
 
-        pieces[fromRow][rookToCol] = rook;
-        rook.setPosition(fromRow, rookToCol);
-        pieces[fromRow][rookCol] = null;
-        rook.setMoved(true);
+    /**
+     * Checks if the team to move is in check
+     *
+     * @return A boolean stating whether the team to move is in check
+     */
+    public boolean isInCheck() {
+        int us = sideToMove.ordinal();
+        return kingSquares[us] != -1 && isSquareAttacked(kingSquares[us], 1 - us);
     }
 
     /**
-     * A helper method for undoMove that handles undoing castle moves
+     * Restores the piece bits of a 16 bit move for the current position, see PackedMove.toShort
      *
-     * @param move The castle move to undo
+     * @param shortMove The from, to, promotion and flag bits of a move
+     * @return The packed move, PackedMove.NONE if its from square is empty. The move is not checked for legality
      */
-    private void undoCastleMove(Move move) {
-        int fromRow = move.getFromRow();
-        int fromCol = move.getFromCol();
-        int toCol = move.getToCol();
-        int toRow = move.getToRow();
+    public int fromShort(int shortMove) {
+        int piece = mailbox[PackedMove.from(shortMove)];
+        if (shortMove == PackedMove.NONE || piece == EMPTY) return PackedMove.NONE;
+        int captured = PackedMove.flag(shortMove) == PackedMove.EN_PASSANT ? (piece < 6 ? 6 : 0) : mailbox[PackedMove.to(shortMove)];
+        return shortMove | (piece << 16) | ((captured + 1) << 20);
+    }
 
-        int rookCol = (toCol > fromCol) ? 7 : 0;
-        int rookToCol = (toCol > fromCol) ? toCol - 1 : toCol + 1;
+    /**
+     * Packs a Move from the GUI, opening book or legacy move lists for the current position
+     *
+     * @param move The move to pack
+     * @return The packed move
+     */
+    private int encodeMove(Move move) {
+        int from = Bitboard.square(move.getFromRow(), move.getFromCol());
+        int to = Bitboard.square(move.getToRow(), move.getToCol());
+        int piece = mailbox[from];
+        int type = piece % 6;
+
+        if (type == Bitboard.KING && Math.abs(to - from) == 2)
+            return PackedMove.encode(from, to, piece, EMPTY, 0, PackedMove.CASTLE);
+        if (type == Bitboard.PAWN && to == enPassantSquare && mailbox[to] == EMPTY)
+            return PackedMove.encode(from, to, piece, 6 - piece, 0, PackedMove.EN_PASSANT);
+        if (type == Bitboard.PAWN && (move.getToRow() == 0 || move.getToRow() == 7)) {
+            Piece promotionPiece = move.getPromotionPiece();
+            int promotionType = promotionPiece == null ? Bitboard.QUEEN : Utility.pieceToIndex(promotionPiece) % 6;
+            return PackedMove.encode(from, to, piece, mailbox[to], promotionType, PackedMove.PROMOTION);
+        }
+        return PackedMove.encode(from, to, piece, mailbox[to], 0, PackedMove.NORMAL);
+    }
 
-        Piece rook = getPieceAt(fromRow, rookToCol);
-        Piece king = move.getPiece();
+    /**
+     * Turns a packed move for the current position into a Move for the GUI, notation and the opening book
+     *
+     * @param packedMove The packed move
+     * @return The move with its captured piece, promotion piece and move type filled in
+     */
+    public Move toMove(int packedMove) {
+        int from = PackedMove.from(packedMove);
+        int to = PackedMove.to(packedMove);
+        int flag = PackedMove.flag(packedMove);
+        int piece = PackedMove.piece(packedMove);
+        Move move = new Move(Bitboard.row(from), Bitboard.col(from), Bitboard.row(to), Bitboard.col(to), Utility.getPiece(piece, from));
+        move.setPackedMove(packedMove);
+
+        MoveType type = MoveType.LEGAL;
+        if (PackedMove.isCapture(packedMove)) {
+            int captureSquare = flag == PackedMove.EN_PASSANT ? enPassantVictimSquare(to, piece) : to;
+            move.setCapturedPiece(Utility.getPiece(PackedMove.captured(packedMove), captureSquare));
+            type = MoveType.CAPTURE;
+        }
 
-        pieces[fromRow][fromCol] = king;
-        king.setPosition(fromRow, fromCol);
-        pieces[toRow][toCol] = null;
-        king.setMoved(false);
-        ((King) king).setHasCastled(false);
+        makeMove(packedMove);
+        if (isInCheck()) type = MoveType.CHECK;
+        undoMove(packedMove);
 
-        pieces[fromRow][rookCol] = rook;
-        rook.setPosition(fromRow, rookCol);
-        pieces[fromRow][rookToCol] = null;
-        rook.setMoved(false);
+        if (flag == PackedMove.CASTLE) type = MoveType.CASTLE;
+        if (flag == PackedMove.PROMOTION) {
+            move.setPromotionPiece(Utility.getPiece((piece - Bitboard.PAWN) + PackedMove.promotionType(packedMove), to));
+            type = MoveType.PROMOTION;
+        }
+        move.setMoveType(type);
+        return move;
     }
 
     /**
@@ -329,10 +1419,20 @@ public class Board  {
      * @return The team moves based on given type
      */
     public List<Move> getMoves(MoveType type, Color color) {
-        List<Piece> teamPieces = getTeamPieces(color);
-        List<Move> teamMoves = teamPieces.stream()
-                .flatMap(piece -> getPieceMoves(piece).stream())
-                .collect(Collectors.toList());
+        List<Move> teamMoves = new ArrayList<>();
+        boolean otherTeam = color != sideToMove;
+        if (otherTeam) skipMove();
+
+        int[] packedMoves = new int[MAX_MOVES];
+        int count = generateLegalMoves(packedMoves);
+        for (int i = 0; i < count; i++) {
+            int packedMove = packedMoves[i];
+            // Only queen promotions are offered through Move lists
+            if (!PackedMove.isPromotion(packedMove) || PackedMove.promotionType(packedMove) == Bitboard.QUEEN)
+                teamMoves.add(toMove(packedMove));
+        }
+
+        if (otherTeam) undoSkipMove();
 
         if (type == MoveType.LEGAL)
             return teamMoves;
@@ -363,15 +1463,9 @@ public class Board  {
      * @param piece The piece to get legal moves from
      * @return A list of legal moves for the piece.
      */
-    @SuppressWarnings("all")
     public List<Move> getPieceMoves(Piece piece) {
-        List<Move> pieceMoves = piece.getSudoLegalMoves(this);
-        pieceMoves = organizeMoves(pieceMoves);
-
-        Predicate<Move> illegalMove = move -> move.getMoveType() == MoveType.ILLEGAL;
-
-        pieceMoves.removeIf(illegalMove);
-
+        List<Move> pieceMoves = getMoves(MoveType.LEGAL, piece.getColor());
+        pieceMoves.removeIf(move -> move.getFromRow() != piece.getRow() || move.getFromCol() != piece.getCol());
         return pieceMoves;
     }
 
@@ -382,49 +1476,28 @@ public class Board  {
      * @return A list of pieces from the provided color
      */
     public List<Piece> getTeamPieces(Color color) {
-        Predicate<Piece> sameColor = piece -> piece != null && piece.getColor() == color;
-
-        return Arrays.stream(pieces)
-                .flatMap(Arrays::stream)
-                .filter(sameColor)
-                .collect(Collectors.toList());
-    }
+        int team = color.ordinal();
+        List<Piece> teamPieces = new ArrayList<>(pieceCounts[team]);
 
-    /**
-     * A helper method to organize and identify move types
-     *
-     * @param moves The list of moves to organize
-     * @return The list of organized moves
-     */
-    private List<Move> organizeMoves(List<Move> moves) {
-        for (Move move : moves) {
-            if (move.getMoveType() == null) {
-                boolean typeSet = Utility.isMoveCapture(this, move);
-                if (Utility.doesMoveCheckOpponent(this, move) && !typeSet) typeSet = true;
-                if (Utility.doesMoveLeadToCheck(this, move) && !typeSet) typeSet = true;
-                if (Utility.isMoveCastle(move) && !typeSet) typeSet = true;
-                if (Utility.isPromotionMove(move) && !typeSet) typeSet = true;
-                if (!typeSet || move.getMoveType() == null) move.setMoveType(MoveType.LEGAL);
-            }
+        for (int i = 0; i < pieceCounts[team]; i++) {
+            int square = pieceSquares[team][i];
+            teamPieces.add(Utility.getPiece(mailbox[square], square));
         }
-        return moves;
+        return teamPieces;
     }
 
     /**
-     * Organizes a single move
+     * Organizes a single move by matching it against the legal moves of its piece
      *
      * @param move The move to organize
-     * @return The organized move
+     * @return The matching legal move, or the move marked illegal if there is none
      */
     public Move organizeMove(Move move) {
-        if (move.getMoveType() == null) {
-            boolean typeSet = Utility.isMoveCapture(this, move);
-            if (Utility.doesMoveCheckOpponent(this, move) && !typeSet) typeSet = true;
-            if (Utility.doesMoveLeadToCheck(this, move) && !typeSet) typeSet = true;
-            if (Utility.isMoveCastle(move) && !typeSet) typeSet = true;
-            if (Utility.isPromotionMove(move) && !typeSet) typeSet = true;
-            if (!typeSet || move.getMoveType() == null) move.setMoveType(MoveType.LEGAL);
+        for (Move pieceMove : getPieceMoves(move.getPiece())) {
+            if (move.getToRow() == pieceMove.getToRow() && move.getToCol() == pieceMove.getToCol())
+                return pieceMove;
         }
+        move.setMoveType(MoveType.ILLEGAL);
         return move;
     }
 
@@ -443,37 +1516,4 @@ public class Board  {
         }
         return false;
     }
-
-    /**
-     * Gets ordered moves for MVV-LVA (Method is for AI use only)
-     *
-     * @param color   The color to get moves for
-     * @param history Recent history for AI
-     * @return The new ordered moves list
-     */
-    public List<Move> getSortedMoves(Color color, int[][] history) {
-        List<Move> moves = getMoves(MoveType.ORDERED, color);
-        moves.sort((move1, move2) -> {
-            int move1Score = 0;
-            int move2Score = 0;
-
-            // Assign scores based on MVV-LVA
-            if (move1.getCapturedPiece() != null) {
-                move1Score = move1.getCapturedPiece().getValue() - move1.getPiece().getValue();
-            }
-            if (move2.getCapturedPiece() != null) {
-                move2Score = move2.getCapturedPiece().getValue() - move2.getPiece().getValue();
-            }
-
-            // If MVV-LVA scores are the same, compare based on history heuristic scores
-            if (move1Score == move2Score) {
-                move1Score = history[move1.getFromRow()][move1.getFromCol()];
-                move2Score = history[move2.getFromRow()][move2.getFromCol()];
-            }
-
-            return Integer.compare(move2Score, move1Score);
-        });
-
-        return moves;
-    }
 }
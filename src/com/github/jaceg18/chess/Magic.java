@@ -0,0 +1,156 @@
+package com.github.jaceg18.chess;
+
+/**
+ * Precomputed magic bitboard tables for sliding piece attacks.
+ * Each square maps the relevant blockers through a multiply and shift into its slice of a shared
+ * attack table, so a slider's full attack set is a single lookup.
+ */
+final class Magic {
+
+    private static final long[] ROOK_MAGICS = {
+            0x1480034000A08018L, 0x5040001000402000L, 0x99000A6000D10041L, 0x528008001001C480L,
+            0x0100100801000402L, 0x8100040002010008L, 0x0380008019000200L, 0x0100020020408100L,
+            0x4021800080400020L, 0x0000802000400082L, 0x8000802000100088L, 0x8000801000080080L,
+            0x0000800400080080L, 0x0222802200800400L, 0x8001000401000200L, 0x000200020040A904L,
+            0x0080004020004008L, 0x0100860040210201L, 0x00304A0010220081L, 0x0441210010030108L,
+            0x1028010005001008L, 0x0040808004000200L, 0x0444040090024801L, 0x094402002C004287L,
+            0x000385248000400AL, 0x8000820200402102L, 0x4017011100402006L, 0x2000201200420008L,
+            0x2000080080800400L, 0x0822000200081004L, 0x0000480400020190L, 0x0200008200010044L,
+            0x1024400022800081L, 0x0660003000C00040L, 0x0008820022001040L, 0x2412100009002100L,
+            0x0428040801001101L, 0x0004020080800400L, 0xCD800E080C002910L, 0x0009000081000042L,
+            0x088000402000C000L, 0x0044600550054002L, 0x0200100020008080L, 0x8010008008008010L,
+            0x00820004208A0010L, 0x0201000804010002L, 0x04020008210200C4L, 0x4010004100820004L,
+            0x2402008038410200L, 0x0082804001200680L, 0x00801A0020408200L, 0x0004201001040900L,
+            0x0540800800040080L, 0x0C02008408108200L, 0x0808D00831020400L, 0x0428800049001880L,
+            0x8001004084221202L, 0x0404400421001085L, 0x0C0408A042021082L, 0x2008050008100021L,
+            0x0101000208001005L, 0x000100080400822DL, 0x0033211098100204L, 0x8004042104004882L
+    };
+
+    private static final long[] BISHOP_MAGICS = {
+            0x4082223408120040L, 0x1104A11222020008L, 0x0184980281040239L, 0x44420A1200440982L,
+            0x0001104100000000L, 0x40022A2020000000L, 0x2084022202204000L, 0x3089004202206240L,
+            0x2A04202102221D40L, 0x4001048408004100L, 0x04281000A0810000L, 0x0428944100200004L,
+            0x0601040420000000L, 0x0600220250052000L, 0x3000008410284400L, 0x0000005108080210L,
+            0x0010000420020440L, 0x0008991001050C21L, 0x9010000808911010L, 0x0008020082004002L,
+            0x09C1008820080401L, 0x8401408208200400L, 0x8004030104014500L, 0x8100842202008220L,
+            0x002240000808D800L, 0x1002627030044802L, 0x0088022004040010L, 0x2210040000401020L,
+            0x9014040004C10040L, 0x610A020100880504L, 0x000401010C012121L, 0x13022A0200808082L,
+            0x5510080442200442L, 0x000208A084040900L, 0x2022002400020808L, 0xC800A20180080080L,
+            0x102004030003A008L, 0x1020180020004403L, 0x0024041088084803L, 0x0000940840110100L,
+            0x0225082016015000L, 0x0A82621210212008L, 0x00400C0404008200L, 0x0001504010400201L,
+            0x000004010C000200L, 0x1004010861001A00L, 0x00A00C040AA04040L, 0x0001070202020294L,
+            0xC144040404864000L, 0x0401004202202280L, 0x0900116D08084000L, 0x0010480020880000L,
+            0x0008000410440080L, 0x0050401016509000L, 0x0020029002008002L, 0xC0A0220202002940L,
+            0xA013002802021002L, 0x1040030409010804L, 0x002040242108080CL, 0x40020A010020A802L,
+            0x0098800460820480L, 0x0086002144040820L, 0x5000061084010408L, 0x0108310808014082L
+    };
+
+    private static final int[][] BISHOP_DIRECTIONS = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+    private static final int[][] ROOK_DIRECTIONS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] ROOK_TABLE;
+    private static final long[] BISHOP_TABLE;
+
+    static {
+        ROOK_TABLE = initTable(ROOK_DIRECTIONS, ROOK_MAGICS, ROOK_MASKS, ROOK_SHIFTS, ROOK_OFFSETS);
+        BISHOP_TABLE = initTable(BISHOP_DIRECTIONS, BISHOP_MAGICS, BISHOP_MASKS, BISHOP_SHIFTS, BISHOP_OFFSETS);
+    }
+
+    private Magic() {
+    }
+
+    /**
+     * Looks up the rook attacks from a square
+     *
+     * @param square   The square the rook stands on
+     * @param occupied All occupied squares on the board
+     * @return The attacked squares, including the first blocker on each ray
+     */
+    static long rookAttacks(int square, long occupied) {
+        return ROOK_TABLE[ROOK_OFFSETS[square] + (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+    }
+
+    /**
+     * Looks up the bishop attacks from a square
+     *
+     * @param square   The square the bishop stands on
+     * @param occupied All occupied squares on the board
+     * @return The attacked squares, including the first blocker on each ray
+     */
+    static long bishopAttacks(int square, long occupied) {
+        return BISHOP_TABLE[BISHOP_OFFSETS[square] + (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+    }
+
+    /**
+     * Fills the masks, shifts and offsets for one slider type and builds its attack table
+     * by walking the rays for every blocker subset of every square.
+     */
+    private static long[] initTable(int[][] directions, long[] magics, long[] masks, int[] shifts, int[] offsets) {
+        int size = 0;
+        for (int square = 0; square < 64; square++) {
+            masks[square] = relevantBlockers(square, directions);
+            int bits = Long.bitCount(masks[square]);
+            shifts[square] = 64 - bits;
+            offsets[square] = size;
+            size += 1 << bits;
+        }
+
+        long[] table = new long[size];
+        for (int square = 0; square < 64; square++) {
+            long mask = masks[square];
+            long subset = 0L;
+            do {
+                int index = (int) ((subset * magics[square]) >>> shifts[square]);
+                table[offsets[square] + index] = slidingAttacks(square, subset, directions);
+                subset = (subset - mask) & mask;
+            } while (subset != 0);
+        }
+        return table;
+    }
+
+    /**
+     * Gets the squares whose occupancy can change a slider's attacks, which excludes the board edge at the end of each ray
+     */
+    private static long relevantBlockers(int square, int[][] directions) {
+        long mask = 0L;
+        for (int[] direction : directions) {
+            int row = Bitboard.row(square) + direction[0];
+            int col = Bitboard.col(square) + direction[1];
+            while (isOnBoard(row + direction[0], col + direction[1])) {
+                mask |= Bitboard.bit(Bitboard.square(row, col));
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Walks each ray until it leaves the board or hits a blocker, only used to build the tables
+     */
+    private static long slidingAttacks(int square, long occupied, int[][] directions) {
+        long attacks = 0L;
+        for (int[] direction : directions) {
+            int row = Bitboard.row(square) + direction[0];
+            int col = Bitboard.col(square) + direction[1];
+            while (isOnBoard(row, col)) {
+                long target = Bitboard.bit(Bitboard.square(row, col));
+                attacks |= target;
+                if ((occupied & target) != 0) break;
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    private static boolean isOnBoard(int row, int col) {
+        return row >= 0 && row < 8 && col >= 0 && col < 8;
+    }
+}
@@ -16,10 +16,9 @@ public class Move implements Serializable {
     private final Piece piece;
     private MoveType moveType;
     private Piece capturedPiece;
-    private boolean capturePieceHasMoved;
-    private boolean sourcePieceHasMoved;
     private Piece promotionPiece;
     private boolean promoted;
+    private int packedMove;
 
     /**
      * Constructor for the Move class. Sets up the move with the given row and column values, and sets the Piece that is
@@ -39,7 +38,6 @@ public class Move implements Serializable {
         this.toCol = toCol;
         this.piece = piece;
 
-        this.sourcePieceHasMoved = piece.hasMoved();
         this.promoted = false;
     }
     public Move(Move move){
@@ -52,8 +50,7 @@ public class Move implements Serializable {
         this.promotionPiece = move.getPromotionPiece();
         this.capturedPiece = move.getCapturedPiece();
         this.moveType = move.getMoveType();
-        this.capturePieceHasMoved = move.getCapturedPieceHasMoved();
-        this.sourcePieceHasMoved = move.getSourcePieceHasMoved();
+        this.packedMove = move.getPackedMove();
     }
 
 
@@ -137,38 +134,6 @@ public class Move implements Serializable {
     public void setMoveType(MoveType moveType){
         this.moveType = moveType;
     }
-    /**
-     * Returns whether the source Piece has moved.
-     *
-     * @return True if the source Piece has moved, false otherwise.
-     */
-    public boolean getSourcePieceHasMoved(){
-        return sourcePieceHasMoved;
-    }
-    /**
-     * Returns whether the captured Piece has moved.
-     *
-     * @return True if the captured Piece has moved, false otherwise.
-     */
-    public boolean getCapturedPieceHasMoved(){
-        return capturePieceHasMoved;
-    }
-    /**
-     * Sets whether the source Piece has moved.
-     *
-     * @param hasMoved Whether the source Piece has moved.
-     */
-    public void setSourcePieceHasMoved(boolean hasMoved){
-        this.sourcePieceHasMoved = hasMoved;
-    }
-    /**
-     * Sets whether the captured Piece has moved.
-     *
-     * @param hasMoved Whether the captured Piece has moved.
-     */
-    public void setCapturePieceHasMoved(boolean hasMoved){
-        this.capturePieceHasMoved = hasMoved;
-    }
     /**
      * Sets the captured Piece.
      *
@@ -176,9 +141,6 @@ public class Move implements Serializable {
      */
     public void setCapturedPiece(Piece capturedPiece){
         this.capturedPiece = capturedPiece;
-        if (capturedPiece != null) {
-            this.capturePieceHasMoved = capturedPiece.hasMoved();
-        }
     }
     /**
      * Sets the promotion Piece.
@@ -197,6 +159,23 @@ public class Move implements Serializable {
         this.promoted = promoted;
     }
 
+    /**
+     * Returns the packed int form of the move, set once the board has made or generated it.
+     *
+     * @return The packed move (see PackedMove).
+     */
+    public int getPackedMove(){
+        return packedMove;
+    }
+    /**
+     * Sets the packed int form of the move.
+     *
+     * @param packedMove The packed move (see PackedMove).
+     */
+    public void setPackedMove(int packedMove){
+        this.packedMove = packedMove;
+    }
+
     @Override
     public String toString(){
         return "To Row: " + toRow + " To Col: " + toCol + " From Row: " + fromRow + " From Col: " + fromCol + " Piece: " + Utility.getNameByPiece(piece);
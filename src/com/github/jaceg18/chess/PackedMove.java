@@ -0,0 +1,118 @@
+package com.github.jaceg18.chess;
+
+/**
+ * Static helpers for the packed int move format used by the search and perft hot paths.
+ * The low 16 bits hold from, to, promotion type and special flag, so they identify a move on their own.
+ * The upper bits add the moving piece and captured piece indexes (see {@link Utility#pieceToIndex}).
+ *
+ * <pre>
+ * bits  0-5   from square
+ * bits  6-11  to square
+ * bits 12-13  promotion type (0 knight, 1 bishop, 2 rook, 3 queen)
+ * bits 14-15  special flag (0 normal, 1 promotion, 2 en passant, 3 castle)
+ * bits 16-19  moving piece index
+ * bits 20-23  captured piece index + 1, 0 when nothing is captured
+ * </pre>
+ */
+public final class PackedMove {
+
+    public static final int NONE = 0;
+
+    public static final int NORMAL = 0;
+    public static final int PROMOTION = 1;
+    public static final int EN_PASSANT = 2;
+    public static final int CASTLE = 3;
+
+    private static final int CAPTURE_MASK = 0xF << 20;
+
+    private PackedMove() {
+    }
+
+    /**
+     * Packs a move into an int
+     *
+     * @param from          The from square
+     * @param to            The to square
+     * @param piece         The moving piece index
+     * @param captured      The captured piece index, -1 for none
+     * @param promotionType The promoted piece type (knight to queen), ignored unless the flag is PROMOTION
+     * @param flag          The special flag
+     * @return The packed move
+     */
+    public static int encode(int from, int to, int piece, int captured, int promotionType, int flag) {
+        int promotion = flag == PROMOTION ? promotionType - Bitboard.KNIGHT : 0;
+        return from | (to << 6) | (promotion << 12) | (flag << 14) | (piece << 16) | ((captured + 1) << 20);
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    public static int flag(int move) {
+        return (move >>> 14) & 3;
+    }
+
+    public static int piece(int move) {
+        return (move >>> 16) & 15;
+    }
+
+    /**
+     * Gets the captured piece index
+     *
+     * @param move The packed move
+     * @return The captured piece index, -1 for none
+     */
+    public static int captured(int move) {
+        return ((move >>> 20) & 15) - 1;
+    }
+
+    /**
+     * Gets the piece type a pawn promotes to
+     *
+     * @param move The packed move
+     * @return The promoted piece type (knight to queen) without the color offset
+     */
+    public static int promotionType(int move) {
+        return ((move >>> 12) & 3) + Bitboard.KNIGHT;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE_MASK) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return flag(move) == PROMOTION;
+    }
+
+    /**
+     * Gets the 16 bit part of a move, which is enough to identify it in a given position
+     *
+     * @param move The packed move
+     * @return The from, to, promotion and flag bits
+     */
+    public static int toShort(int move) {
+        return move & 0xFFFF;
+    }
+
+    /**
+     * Gets the coordinate notation of a move, such as e2e4 or e7e8q
+     *
+     * @param move The packed move
+     * @return The from and to squares followed by the promotion piece, if any
+     */
+    public static String toCoordinate(int move) {
+        String coordinate = squareName(from(move)) + squareName(to(move));
+        return isPromotion(move) ? coordinate + "nbrq".charAt(promotionType(move) - Bitboard.KNIGHT) : coordinate;
+    }
+
+    /**
+     * Helper for toCoordinate that names a square, row 0 being rank 8
+     */
+    private static String squareName(int square) {
+        return "" + (char) ('a' + Bitboard.col(square)) + (8 - Bitboard.row(square));
+    }
+}
@@ -1,8 +1,8 @@
 package com.github.jaceg18.chess;
 
 import com.github.jaceg18.chess.identity.Color;
-import com.github.jaceg18.chess.identity.Flag;
 import com.github.jaceg18.chess.identity.MoveType;
+import com.github.jaceg18.chess.identity.PieceType;
 import com.github.jaceg18.chess.pieces.*;
 
 import java.util.ArrayList;
@@ -14,18 +14,25 @@ import static com.github.jaceg18.chess.identity.MoveType.*;
 @SuppressWarnings("unused")
 public class Utility {
 
-    // Constants for piece values
-    private static final int PAWN_VALUE = 100;
-    private static final int KNIGHT_VALUE = 350;
-    private static final int BISHOP_VALUE = 375;
-    private static final int ROOK_VALUE = 550;
-    private static final int QUEEN_VALUE = 900;
-    private static final int KING_VALUE = 0;
     private static final int[][] knightOffsets = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
 
     // Bishops, rooks, and queens
     private static final int[][] slidingOffsets = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}, {-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
 
+    // Values by piece index, see pieceToIndex
+    private static final int[] VALUES = new int[12];
+
+    // Shared read-only pieces for every piece index and square, so the board never allocates pieces
+    private static final Piece[][] PIECES = new Piece[12][64];
+
+    static {
+        for (int piece = 0; piece < 12; piece++)
+            VALUES[piece] = PieceType.of(piece).getValue();
+        for (int piece = 0; piece < 12; piece++)
+            for (int square = 0; square < 64; square++)
+                PIECES[piece][square] = createPiece(piece, Bitboard.row(square), Bitboard.col(square));
+    }
+
     /**
      * Gets the value of a piece based on its type.
      *
@@ -33,15 +40,43 @@ public class Utility {
      * @return the value of the piece
      */
     public static int getValueByPiece(Piece piece) {
-        // Use switch statement for better performance
-        return switch (getNameByPiece(piece)) {
-            case "Pawn" -> PAWN_VALUE;
-            case "Knight" -> KNIGHT_VALUE;
-            case "Bishop" -> BISHOP_VALUE;
-            case "Rook" -> ROOK_VALUE;
-            case "Queen" -> QUEEN_VALUE;
-            case "King" -> KING_VALUE;
-            default -> throw new IllegalArgumentException("Invalid piece type: " + getNameByPiece(piece));
+        return piece.getValue();
+    }
+
+    /**
+     * Gets the value of a piece based on its piece index.
+     *
+     * @param pieceIndex the piece index (see pieceToIndex)
+     * @return the value of the piece
+     */
+    public static int getValueByIndex(int pieceIndex) {
+        return VALUES[pieceIndex];
+    }
+
+    /**
+     * Gets the shared piece for a piece index on a square.
+     * These pieces are shared between boards and threads and must not be modified.
+     *
+     * @param pieceIndex the piece index (see pieceToIndex)
+     * @param square     the square index (see Bitboard.square)
+     * @return the piece
+     */
+    public static Piece getPiece(int pieceIndex, int square) {
+        return PIECES[pieceIndex][square];
+    }
+
+    /**
+     * Helper for the shared piece table that creates a piece from its index
+     */
+    private static Piece createPiece(int pieceIndex, int row, int col) {
+        Color color = pieceIndex < 6 ? Color.WHITE : Color.BLACK;
+        return switch (PieceType.of(pieceIndex)) {
+            case PAWN -> new Pawn(color, row, col);
+            case KNIGHT -> new Knight(color, row, col);
+            case BISHOP -> new Bishop(color, row, col);
+            case ROOK -> new Rook(color, row, col);
+            case QUEEN -> new Queen(color, row, col);
+            case KING -> new King(color, row, col);
         };
     }
 
@@ -52,14 +87,7 @@ public class Utility {
      * @return the name of the piece
      */
     public static String getNameByPiece(Piece piece) {
-        if (piece instanceof Pawn) return "Pawn";
-        if (piece instanceof Knight) return "Knight";
-        if (piece instanceof Bishop) return "Bishop";
-        if (piece instanceof Rook) return "Rook";
-        if (piece instanceof Queen) return "Queen";
-        if (piece instanceof King) return "King";
-
-        throw new IllegalArgumentException("Invalid Piece Type");
+        return piece.getType().getName();
     }
 
 
@@ -71,16 +99,7 @@ public class Utility {
      */
 
     public static int pieceToIndex(Piece piece) {
-        int base = piece.getColor() == Color.WHITE ? 0 : 6;
-        return switch (piece.getClass().getSimpleName()) {
-            case "Pawn" -> base;
-            case "Knight" -> base + 1;
-            case "Bishop" -> base + 2;
-            case "Rook" -> base + 3;
-            case "Queen" -> base + 4;
-            case "King" -> base + 5;
-            default -> throw new IllegalArgumentException("Invalid piece type");
-        };
+        return piece.getIndex();
     }
 
     /**
@@ -90,16 +109,7 @@ public class Utility {
      * @return the FEN character for the piece
      */
     public static char getFenByPiece(Piece piece) {
-        // Use switch statement for better performance
-        return switch (getNameByPiece(piece)) {
-            case "Pawn" -> piece.getColor() == Color.WHITE ? 'P' : 'p';
-            case "Knight" -> piece.getColor() == Color.WHITE ? 'N' : 'n';
-            case "Bishop" -> piece.getColor() == Color.WHITE ? 'B' : 'b';
-            case "Rook" -> piece.getColor() == Color.WHITE ? 'R' : 'r';
-            case "Queen" -> piece.getColor() == Color.WHITE ? 'Q' : 'q';
-            case "King" -> piece.getColor() == Color.WHITE ? 'K' : 'k';
-            default -> throw new IllegalArgumentException("Invalid piece type: " + getNameByPiece(piece));
-        };
+        return piece.getType().getFen(piece.getColor());
     }
 
     /**
@@ -171,44 +181,7 @@ public class Utility {
      * @return A boolean that tells whether a square is attacked by the opposite team.
      */
     public static boolean isAttacked(Board board, int row, int col, Color color) {
-        Color opponentsColor = Color.invert(color);
-
-        // Check for opponent's pawn
-        int pawnDirection = (color == Color.WHITE) ? -1 : 1;
-        if (isOpponentPiece(board, opponentsColor, row + pawnDirection, col - 1, Pawn.class) ||
-                isOpponentPiece(board, opponentsColor, row + pawnDirection, col + 1, Pawn.class)) return true;
-
-        // Check for opponent's knight
-        for (int[] offset : knightOffsets) {
-            if (isOpponentPiece(board, opponentsColor, row + offset[0], col + offset[1], Knight.class)) return true;
-        }
-
-        // Check for opponent's sliding pieces (bishops, rooks, and queens)
-        for (int[] offset : slidingOffsets) {
-            int newRow = row + offset[0];
-            int newCol = col + offset[1];
-
-            while (isValidCoordinate(newRow, newCol)) {
-                Piece piece = board.getPieceAt(newRow, newCol);
-                if (piece != null) {
-                    if (piece.getColor() == opponentsColor) {
-                        if (piece instanceof Queen ||
-                                piece instanceof Bishop && (offset[0] == offset[1] || offset[0] == -offset[1]) ||
-                                piece instanceof Rook && (offset[0] == 0 || offset[1] == 0)) return true;
-                    }
-                    break; // Stop searching in this direction if a piece is encountered
-                }
-                newRow += offset[0];
-                newCol += offset[1];
-            }
-        }
-
-        // Check for opponent's king
-        for (int[] offset : slidingOffsets) {
-            if (isOpponentPiece(board, opponentsColor, row + offset[0], col + offset[1], King.class)) return true;
-        }
-
-        return false;
+        return board.isSquareAttacked(Bitboard.square(row, col), Color.invert(color).ordinal());
     }
 
     /**
@@ -297,13 +270,8 @@ public class Utility {
      * @return A boolean stating whether the given color is in check.
      */
     public static boolean inCheck(Board board, Color color) {
-        King king = board.getKing(color);
-        if (king == null) return false;
-
-        int kingRow = king.getRow();
-        int kingCol = king.getCol();
-
-        return isAttacked(board, kingRow, kingCol, color);
+        int kingSquare = board.getKingSquare(color);
+        return kingSquare != -1 && board.isSquareAttacked(kingSquare, Color.invert(color).ordinal());
     }
 
     /**
@@ -333,103 +301,49 @@ public class Utility {
         return row >= 0 && row < Board.ROWS && col >= 0 && col < Board.COLS;
     }
 
-    /**
-     * Checks if a move gets the opponent into check
-     *
-     * @param board The board to check
-     * @param move  The move to check
-     * @return A boolean stating whether the move leads to the opponent in check
-     */
-    public static boolean doesMoveCheckOpponent(Board board, Move move) {
-        board.makeMove(move, Flag.SEARCHING);
-        boolean isCheck = inCheck(board, Color.invert(move.getPiece().getColor()));
-        board.undoMove(move);
 
-        if (isCheck) move.setMoveType(CHECK);
 
-        return isCheck;
-    }
 
     /**
-     * Checks if a move causes the moving team check (Example, a pinned bishop moving)
+     * Determines if the game is drawn, either by stalemate of the team to move or by insufficient material
      *
      * @param board The board to check
-     * @param move  The move to check
-     * @return A boolean stating whether the move leads to the moving team being in check.
+     * @return A boolean stating whether a team is in stalemate
      */
-    public static boolean doesMoveLeadToCheck(Board board, Move move) {
-        board.makeMove(move, Flag.SEARCHING);
-        boolean isCheck = inCheck(board, move.getPiece().getColor());
-        board.undoMove(move);
-
-        if (isCheck) move.setMoveType(MoveType.ILLEGAL);
-
-        return isCheck;
+    public static boolean isStalemate(Board board) {
+        return board.isInsufficientMaterial() || (!board.isInCheck() && !hasLegalMoves(board));
     }
 
     /**
-     * Determines if a move is checkmate for the opponents team
+     * Determines if neither team has enough material left to deliver mate
      *
      * @param board The board to check
-     * @param move  The move to check
-     * @return A boolean stating whether the move is checkmate for the opponent
+     * @return A boolean stating whether the material is insufficient
      */
-    public boolean isMoveCheckmate(Board board, Move move) {
-        board.makeMove(move, Flag.SEARCHING);
-        boolean isCheckmate = isCheckmate(board, Color.invert(move.getPiece().getColor()));
-        board.undoMove(move);
-
-        return isCheckmate;
+    public static boolean isInsufficientMaterial(Board board) {
+        return board.isInsufficientMaterial();
     }
 
     /**
-     * Determines if either team is in stalemate
+     * Determines if the current state of the board is checkmate for a given color.
+     * Only the team to move can be checkmated.
      *
      * @param board The board to check
-     * @return A boolean stating whether a team is in stalemate
+     * @param color The color to check
+     * @return A boolean stating whether a team is in checkmate
      */
-    public static boolean isStalemate(Board board) {
-        return board.getMoves(ORDERED, Color.WHITE).size() == 0 || board.getMoves(ORDERED, Color.BLACK).size() == 0 || isInsufficientMaterial(board);
-    }
-
-    public static boolean isInsufficientMaterial(Board board) {
-        List<Piece> whitePieces = board.getTeamPieces(Color.WHITE);
-        List<Piece> blackPieces = board.getTeamPieces(Color.BLACK);
-
-        int whiteSize = whitePieces.size();
-        int blackSize = blackPieces.size();
-
-        boolean insufficientMaterial = false;
-
-        if (whiteSize == 1 && blackSize == 1) {
-            insufficientMaterial = true;
-        } else if (whiteSize == 2 && blackSize == 1) {
-            for (Piece piece : whitePieces) {
-                if (piece instanceof Bishop || piece instanceof Knight) {
-                    insufficientMaterial = true;
-                    break;
-                }
-            }
-        } else if (whiteSize == 1 && blackSize == 2) {
-            for (Piece piece : blackPieces) {
-                if (piece instanceof Bishop || piece instanceof Knight) {
-                    insufficientMaterial = true;
-                    break;
-                }
-            }
-        }
-        return insufficientMaterial;
+    public static boolean isCheckmate(Board board, Color color) {
+        return color == board.getSideToMove() && board.isInCheck() && !hasLegalMoves(board);
     }
 
     /**
-     * Determines if the current state of the board is checkmate for a given color.
+     * Helper method for isStalemate, isCheckmate and isGameOver that checks whether the team to move has a legal move
      *
      * @param board The board to check
-     * @param color The color to check
-     * @return A boolean stating whether a team is in checkmate
+     * @return A boolean stating whether there is a legal move
      */
-    public static boolean isCheckmate(Board board, Color color) {
-        return inCheck(board, color) && board.getMoves(ORDERED, color).size() == 0;
+    private static boolean hasLegalMoves(Board board) {
+        return board.generateLegalMoves(new int[Board.MAX_MOVES]) > 0;
     }
 
     /**
@@ -458,9 +372,8 @@ public class Utility {
         if (move.getPiece() instanceof Pawn && (move.getToRow() == 0 || move.getToRow() == 7)) {
             isPromotionMove = true;
             move.setMoveType(MoveType.PROMOTION);
-            Piece promotionPiece = new Queen(move.getPiece().getColor(), move.getToRow(), move.getToCol());
-            promotionPiece.setPosition(move.getToRow(), move.getToCol());
-            move.setPromotionPiece(promotionPiece);
+            int queen = move.getPiece().getColor().ordinal() * 6 + Bitboard.QUEEN;
+            move.setPromotionPiece(getPiece(queen, Bitboard.square(move.getToRow(), move.getToCol())));
         }
         return isPromotionMove;
     }
@@ -525,7 +438,7 @@ public class Utility {
      * @return A boolean stating whether the game is over
      */
     public static boolean isGameOver(Board board) {
-        return Utility.isStalemate(board) || Utility.isCheckmate(board, Color.WHITE) || Utility.isCheckmate(board, Color.BLACK);
+        return board.isInsufficientMaterial() || board.isThreefoldRepetition() || board.isFiftyMoveDraw() || !hasLegalMoves(board);
     }
 
 }
@@ -1,8 +1,9 @@
 package com.github.jaceg18.chess.ai;
 
+import com.github.jaceg18.chess.Bitboard;
 import com.github.jaceg18.chess.Board;
 import com.github.jaceg18.chess.Move;
-import com.github.jaceg18.chess.ScoredMove;
+import com.github.jaceg18.chess.PackedMove;
 import com.github.jaceg18.chess.Utility;
 import com.github.jaceg18.chess.ai.Opening.OpeningBook;
 import com.github.jaceg18.chess.evaluation.Evaluation;
@@ -15,42 +16,149 @@ import com.github.jaceg18.chess.ui.GUI;
 
 import javax.swing.plaf.IconUIResource;
 import javax.swing.plaf.synth.SynthOptionPaneUI;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicInteger;
 
 
 @SuppressWarnings("all")
 public class AI {
-    private Map<Long, TranspositionEntry> transpositionTable;
+    private static final long NO_MOVE = Long.MIN_VALUE;
+    // The deepest iteration a search can reach
+    public static final int MAX_DEPTH = SearchStack.MAX_PLY - 1;
+    // Bound of every search window, beyond any mate score
+    private static final int INFINITE = Evaluation.MATE_SCORE + 1;
+    // Scores further from 0 than this are mate scores
+    private static final int MATE_BOUND = Evaluation.MATE_SCORE - SearchStack.MAX_PLY;
+    // Depth taken off a null move search on top of the ply it skips
+    private static final int NULL_MOVE_REDUCTION = 2;
+    // Depth up to which late quiet moves are pruned, and the number of moves searched at each depth before they are
+    private static final int LATE_MOVE_PRUNING_DEPTH = 3;
+    private static final int[] LATE_MOVE_COUNTS = {0, 5, 8, 13};
+    // History score worth one ply less or more of late move reduction
+    private static final int HISTORY_REDUCTION_DIVISOR = 6_000;
+    // Late move reductions by remaining depth and move number, growing with the logarithm of both
+    private static final int[][] REDUCTIONS = new int[SearchStack.MAX_PLY][Board.MAX_MOVES];
+    static {
+        for (int depth = 1; depth < SearchStack.MAX_PLY; depth++) {
+            for (int moveCount = 1; moveCount < Board.MAX_MOVES; moveCount++) {
+                REDUCTIONS[depth][moveCount] = (int) (0.75 + Math.log(depth) * Math.log(moveCount) / 2.25);
+            }
+        }
+    }
+    // Margin on top of the captured piece by which a capture in quiescence search still has to reach alpha,
+    // two pawns on the evaluation's material scale
+    private static final int DELTA_MARGIN = Evaluation.MATERIAL_WEIGHT * 200;
+    // First iteration searched with an aspiration window, shallower ones are too unstable to predict
+    private static final int ASPIRATION_DEPTH = 4;
+    // Initial distance of the aspiration window bounds from the previous score, doubled on every fail
+    private static final int ASPIRATION_WINDOW = 25;
+    // Once the window has grown this far the failing side is opened completely
+    private static final int ASPIRATION_MAX_WINDOW = 1000;
+    // Transposition table size used when none is given
+    private static final int DEFAULT_TABLE_SIZE_MB = 32;
+    private final TranspositionTable transpositionTable;
     protected final Color AITeam;
-    private int[][] history;
     private int depth;
-    private final int numThreads = 8;
+    // Time budget of a move, 0 for searching to the full depth whatever it takes
+    private long moveTimeMillis;
+    private final TimeManager timeManager = new TimeManager();
+    private final int numThreads;
     private OpeningBook openingBook;
     private final int openingMax = 5;
     private int openingAmount = 0;
-    private final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    // The book follows the game notation from the start position, so it is turned off for other positions
+    private boolean useOpeningBook = true;
+    // Helper threads of the lazy SMP search, the main search runs on the calling thread
+    private final ExecutorService executor;
+    // Reused by each search thread, the root position is copied into its board before every search
+    private final Board[] threadBoards;
+    private final SearchStack[] threadStacks;
+    // Set once the main thread has finished or ran out of time, every thread then abandons its search
+    private volatile boolean stopSearch;
+    // Whether the main thread has finished an iteration, before that the time limit is not enforced
+    private boolean hasResult;
+    // Summary of the main thread's last completed iteration, see getSearchInfo
+    private volatile String searchInfo = "";
 
     /**
-     AI constructor that sets up initial properties of the AI
+     AI constructor that sets up initial properties of the AI, searching with one thread per available processor
      @param AITeam The color of the AI
-     @param maxSearchTimeMillis The maximum amount of time allowed for the AI to make a move
+     @param depth The maximum depth the AI searches to
      */
     public AI(Color AITeam, int depth){
+        this(AITeam, depth, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     AI constructor that sets up initial properties of the AI
+     @param AITeam The color of the AI
+     @param depth The maximum depth the AI searches to
+     @param numThreads The number of search threads, the main thread included
+     */
+    public AI(Color AITeam, int depth, int numThreads){
+        this(AITeam, depth, numThreads, DEFAULT_TABLE_SIZE_MB);
+    }
+
+    /**
+     AI constructor that sets up initial properties of the AI
+     @param AITeam The color of the AI
+     @param depth The maximum depth the AI searches to
+     @param numThreads The number of search threads, the main thread included
+     @param tableSizeMb The size of the transposition table shared by the search threads in megabytes
+     */
+    public AI(Color AITeam, int depth, int numThreads, int tableSizeMb){
         this.AITeam = AITeam;
         this.depth = depth;
-        this.transpositionTable = new HashMap<>();
-        history = new int[8][8];
+        this.numThreads = Math.max(1, numThreads);
+        this.transpositionTable = new TranspositionTable(tableSizeMb);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, this.numThreads - 1));
+        this.threadBoards = new Board[this.numThreads];
+        this.threadStacks = new SearchStack[this.numThreads];
+        for (int i = 0; i < this.numThreads; i++){
+            threadBoards[i] = new Board();
+            threadStacks[i] = new SearchStack();
+        }
 
         this.openingBook = new OpeningBook(AITeam);
     }
 
+    /**
+     Stops any running search and the helper threads, the AI cannot search afterwards
+     */
+    public void shutdown(){
+        stopSearch = true;
+        // Helper searches that never started still have to count down their latch, with the stop flag set they
+        // return at their first node
+        for (Runnable task : executor.shutdownNow()) task.run();
+    }
+
+    /**
+     Sets the time budget of a move, the search then deepens until the time is used or the maximum depth is reached
+     @param moveTimeMillis The time a move may take in milliseconds, 0 for no limit
+     */
+    public void setMoveTime(long moveTimeMillis){
+        this.moveTimeMillis = moveTimeMillis;
+    }
+
+    /**
+     Turns the opening book on or off, it only knows games played from the start position
+     @param useOpeningBook Whether book moves are played before searching
+     */
+    public void setOpeningBookEnabled(boolean useOpeningBook){
+        this.useOpeningBook = useOpeningBook;
+    }
+
+    /**
+     Gets a summary of the last completed iteration of the main thread: its depth, score, how often its aspiration
+     window failed low and high, how often a root move beating alpha had to be searched again, and the principal variation
+     @return The summary, empty before the first search or when the last move came from the opening book
+     */
+    public String getSearchInfo(){
+        return searchInfo;
+    }
+
     /**
      Makes a move for the AI on the provided board
      @param board The board on which to make a move
@@ -58,8 +166,9 @@ public class AI {
      */
 
     public synchronized Board move(Board board){
+        searchInfo = "";
         boolean openingFailed = true;
-        if (openingMax >= openingAmount){
+        if (useOpeningBook && openingMax >= openingAmount){
            Move move = openingBook.getOpeningMove(board);
            if (move != null){
                openingFailed = false;
@@ -79,297 +188,447 @@ public class AI {
     }
 
     /**
-
-     Uses iterative deepening search to find the best move for the AI within the given time limit
-
-     @param board The board on which to search for the best move
-
-     @return The best move for the AI within the given time limit
-     */
-
-    /**
-     * Searches the best move using alpha beta pruning
-     * @param depth The depth to search at
-     * @param startTime The starting time of the search
-     * @param searchCompleted The boolean for indicating whether a search was finished
+     * Searches the best move with a lazy SMP search: the calling thread runs iterative deepening up to the
+     * given depth or until the move time is used, while helper threads search the same position and fill
+     * the shared transposition table
      * @param board The board to search on
-     * @return The best move at the provided depth
+     * @param depth The maximum depth to search to
+     * @return The best move of the main thread, null if there are no moves
      */
-
     public Move search(Board board, int depth) {
-        int numLegalMoves = getNumLegalMoves(board, AITeam) + getNumLegalMoves(board, Color.invert(AITeam));
-
-        int adjustedDepth = (numLegalMoves <= 18) ? depth + 2 : depth;
-        adjustedDepth = (numLegalMoves <= 10) ? depth + 4 : depth;
-
-        AtomicInteger alpha = new AtomicInteger(Integer.MIN_VALUE);
-        AtomicInteger beta = new AtomicInteger(Integer.MAX_VALUE);
-        ConcurrentLinkedQueue<ScoredMove> bestMoves = new ConcurrentLinkedQueue<>();
-        CountDownLatch latch = new CountDownLatch(numThreads);
-
-        for (int i = 0; i < numThreads; i++) {
+        timeManager.start(moveTimeMillis);
+
+        // Lazy SMP: helpers search the same root at staggered depths and only share the transposition table,
+        // the main thread's own iterative deepening gives the result
+        stopSearch = false;
+        hasResult = false;
+        transpositionTable.newSearch();
+        CountDownLatch latch = new CountDownLatch(numThreads - 1);
+        for (int i = 1; i < numThreads; i++) {
+            int thread = i;
+            threadBoards[thread].copyFrom(board);
+            threadStacks[thread].helper = true;
+            threadStacks[thread].newSearch();
             executor.submit(() -> {
-                Board localBoard = board.getCopy();
-                ScoredMove bestMove = searchHelper(localBoard, depth, alpha, beta);
-                bestMoves.add(bestMove);
-                latch.countDown();
+                try {
+                    iterativeDeepening(threadBoards[thread], 1 + thread % 2, SearchStack.MAX_PLY - 1, threadStacks[thread]);
+                } finally {
+                    latch.countDown();
+                }
             });
         }
 
+        threadBoards[0].copyFrom(board);
+        threadStacks[0].newSearch();
+        long bestMove = iterativeDeepening(threadBoards[0], 1, Math.min(depth, MAX_DEPTH), threadStacks[0]);
+        stopSearch = true;
+
         try {
             latch.await();
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
 
-        // Determine the best move from the moves in the bestMoves queue
-        Move bestMove = null;
-        int bestScore = Integer.MIN_VALUE;
+        return bestMove == NO_MOVE ? null : board.toMove((int) bestMove);
+    }
 
-        for (ScoredMove move : bestMoves) {
-            if (move.getScore() > bestScore) {
-                bestScore = move.getScore();
-                bestMove = move;
+    /**
+     * Searches the root at increasing depths, each depth trying the previous depth's best move first.
+     * From ASPIRATION_DEPTH on each depth starts with a narrow window around the previous score, see aspirationSearch.
+     * The main thread also stops once the time manager sees no point in another iteration
+     * @param board The board to search on
+     * @param startDepth The first depth to search
+     * @param maxDepth The last depth to search
+     * @param stack The move buffers for this thread
+     * @return The best move of the deepest completed search packed with its score as score << 32 | move, NO_MOVE if there are no moves
+     */
+    private long iterativeDeepening(Board board, int startDepth, int maxDepth, SearchStack stack) {
+        long bestMove = NO_MOVE;
+        for (int depth = startDepth; depth <= maxDepth; depth++) {
+            int hashMove = bestMove == NO_MOVE ? PackedMove.NONE : (int) bestMove;
+            int alpha = -INFINITE;
+            int beta = INFINITE;
+            if (depth >= ASPIRATION_DEPTH && bestMove != NO_MOVE){
+                int previousScore = (int) (bestMove >> 32);
+                alpha = Math.max(previousScore - ASPIRATION_WINDOW, -INFINITE);
+                beta = Math.min(previousScore + ASPIRATION_WINDOW, INFINITE);
             }
-        }
 
+            long result = aspirationSearch(board, depth, alpha, beta, hashMove, stack);
+            if (stopSearch || result == NO_MOVE) break;
+            bestMove = result;
+
+            if (!stack.helper){
+                hasResult = true;
+                searchInfo = stack.getSearchInfo(depth, (int) (bestMove >> 32));
+                if (timeManager.isDone(depth, (int) bestMove, (int) (bestMove >> 32))) break;
+            }
+        }
         return bestMove;
     }
 
     /**
-     * Helper method for search for multiple threads
+     * Searches the root at one depth starting with the given window. A score on or outside the window is searched
+     * again with the failing side widened geometrically around it, and opened fully once the widening passes
+     * ASPIRATION_MAX_WINDOW. The fail lows and fail highs are counted on the stack
      * @param board The board to search on
      * @param depth The depth to search to
-     * @param alpha alpha value
-     * @param beta beta value
-     * @return The best move
+     * @param alpha The lower bound of the first window
+     * @param beta The upper bound of the first window
+     * @param hashMove The move to search first, PackedMove.NONE for none
+     * @param stack The move buffers for this thread
+     * @return The best move packed with its score as score << 32 | move, NO_MOVE if there are no moves or the search was stopped
      */
+    long aspirationSearch(Board board, int depth, int alpha, int beta, int hashMove, SearchStack stack) {
+        stack.failLows = 0;
+        stack.failHighs = 0;
+        stack.researches = 0;
+        int delta = ASPIRATION_WINDOW;
+        while (true){
+            long result = searchHelper(board, depth, alpha, beta, hashMove, stack);
+            if (stopSearch || result == NO_MOVE) return NO_MOVE;
+
+            int score = (int) (result >> 32);
+            if (score > alpha && score < beta) return result;
+
+            delta *= 2;
+            if (score <= alpha){
+                stack.failLows++;
+                alpha = delta > ASPIRATION_MAX_WINDOW ? -INFINITE : Math.max(score - delta, -INFINITE);
+            } else {
+                stack.failHighs++;
+                beta = delta > ASPIRATION_MAX_WINDOW ? INFINITE : Math.min(score + delta, INFINITE);
+                // The move that failed high is the one to search first again
+                hashMove = (int) result;
+            }
+        }
+    }
 
-    private ScoredMove searchHelper(Board board, int depth, AtomicInteger alpha, AtomicInteger beta) {
-        Color currentPlayer = AITeam;
-        List<Move> moves = board.getSortedMoves(currentPlayer, history);
+    /**
+     * Checks whether a thread should give up its search because the main thread is done or out of time.
+     * The main thread polls the clock every 1024 checks once it has a move to fall back on
+     * @param stack The search stack of the thread
+     * @return Whether the search result must be thrown away
+     */
+    private boolean isAborted(SearchStack stack) {
+        if (!stack.helper && hasResult && (++stack.checks & 1023) == 0 && timeManager.isHardLimitReached()){
+            stopSearch = true;
+        }
+        return stopSearch;
+    }
 
-        int localAlpha = alpha.get();
-        int localBeta = beta.get();
-        Move bestMove = null;
-        boolean first = true;
+    /**
+     * Searches every root move at one depth, the first with the given window and the rest with a zero window
+     * that is widened again when a move beats the best one. Stops at the first move reaching beta
+     * @param board The board to search on
+     * @param depth The depth to search to
+     * @param alpha The lower bound of the window
+     * @param beta The upper bound of the window
+     * @param hashMove The move to search first, PackedMove.NONE for none
+     * @param stack The move buffers for this thread
+     * @return The best move packed with its score as score << 32 | move, NO_MOVE if there are no moves.
+     * A score at or outside the window only bounds the real one
+     */
+
+    private long searchHelper(Board board, int depth, int alpha, int beta, int hashMove, SearchStack stack) {
+        MovePicker picker = stack.pickers[0];
+        picker.init(board, hashMove, PackedMove.NONE, PackedMove.NONE, PackedMove.NONE, stack.history[board.getSideToMove().ordinal()]);
+        stack.pvLength[0] = 0;
 
-        for (Move move : moves) {
-            board.makeMove(move, Flag.SEARCHING);
+        int bestMove = PackedMove.NONE;
 
+        int move;
+        while ((move = picker.next()) != PackedMove.NONE) {
+            stack.currentMoves[0] = move;
+            board.makeMove(move);
             int score;
-            if (currentPlayer == AITeam) {
-                score = min(localAlpha, localBeta, depth - 1, board, 1, true);
+            if (bestMove == PackedMove.NONE) {
+                score = -negamax(-beta, -alpha, depth - 1, board, 1, true, stack);
             } else {
-                score = max(localAlpha, localBeta, depth - 1, board, 1, true);
+                score = -negamax(-alpha - 1, -alpha, depth - 1, board, 1, true, stack);
+                if (score > alpha && score < beta) {
+                    stack.researches++;
+                    score = -negamax(-beta, -alpha, depth - 1, board, 1, true, stack);
+                }
             }
-
             board.undoMove(move);
 
-            if (first || (currentPlayer == AITeam && score > localAlpha) || (currentPlayer != AITeam && score < localBeta)) {
-                first = false;
-                bestMove = move;
+            if (isAborted(stack)) return NO_MOVE;
 
-                if (currentPlayer == AITeam) {
-                    localAlpha = Math.max(localAlpha, score);
-                    alpha.set(localAlpha);
-                } else {
-                    localBeta = Math.min(localBeta, score);
-                    beta.set(localBeta);
-                }
-            }
-
-            if (localAlpha >= localBeta) {
-                break;
+            if (bestMove == PackedMove.NONE || score > alpha) {
+                bestMove = move;
+                alpha = score;
+                stack.updatePv(0, move);
+                if (score >= beta) break;
             }
         }
 
-        if (bestMove != null) {
-            return new ScoredMove(bestMove, (currentPlayer == AITeam) ? localAlpha : localBeta);
+        if (bestMove != PackedMove.NONE) {
+            stack.savePv();
+            return ((long) alpha << 32) | (bestMove & 0xFFFFFFFFL);
         }
-        return null;
+        return NO_MOVE;
     }
 
     /**
-
-     This method is used as the min function in the alpha-beta pruning algorithm. It searches for the minimum score
-     available in a game state by calling the max function on the resulting game states from each move.
-     It evaluates the board if the maximum depth is reached or the game is over, otherwise it generates and
-     evaluates resulting game states from each move and returns the minimum score available.
-     @param alpha the alpha value for alpha-beta pruning
-     @param beta the beta value for alpha-beta pruning
-     @param depth the current depth of the search
-     @param startTime the start time of the search
-     @param searchCompleted an AtomicBoolean flag indicating if the search was completed
-     @param board the current game board state to search
-     @return the minimum score available from the resulting game states
+     * Principal variation search, scoring a position from the side to move. The first move of a node is searched
+     * with the full window, the others with a zero window around alpha, and only a move that beats alpha is searched
+     * again with the full window. Nodes inside the window record their best line in the search stack's PV table.
+     * @param alpha the score the side to move is already guaranteed
+     * @param beta the score the opponent is already guaranteed, negated
+     * @param depth the remaining depth of the search
+     * @param board the current game board state to search
+     * @param ply the distance from the root, used to pick the move buffer
+     * @param allowNullMove whether a null move may be tried at this node
+     * @param stack the move buffers for this thread
+     * @return the score of the position for the side to move, bounded by the window
      */
-    public int min(int alpha, int beta, int depth, Board board, int moveCount, boolean allowNullMove){
-        if (depth <= 0 || Utility.isGameOver(board)){
-            return Evaluation.evaluate(board, AITeam);
+    private int negamax(int alpha, int beta, int depth, Board board, int ply, boolean allowNullMove, SearchStack stack){
+        stack.pvLength[ply] = ply;
+        if (isAborted(stack)){
+            return 0;
+        }
+        // Any repetition inside the search is scored as a draw, the opponent could repeat it again
+        if (board.isInsufficientMaterial() || board.isRepetition() || board.isFiftyMoveDraw()){
+            return Evaluation.DRAW_SCORE;
+        }
+        if (ply >= SearchStack.MAX_PLY){
+            return Evaluation.evaluate(board, board.getSideToMove());
+        }
+        if (depth <= 0){
+            return quiescenceSearch(alpha, beta, board, ply, stack);
         }
 
-
+        boolean pvNode = beta - alpha > 1;
         long boardHash = board.zobristHashCode();
-        TranspositionEntry entry = transpositionTable.get(boardHash);
-        if (entry != null && entry.depth() >= depth){
-            return (int) entry.score();
+        long entry = transpositionTable.probe(boardHash);
+        // PV nodes search on to keep their line complete
+        if (!pvNode && TranspositionTable.isCutoff(entry, depth, alpha, beta, ply)){
+            return TranspositionTable.score(entry, ply);
+        }
+        // Even an entry too shallow for a cutoff gives the move to try first
+        int hashMove = PackedMove.NONE;
+        int staticEval;
+        if (entry != TranspositionTable.MISS){
+            hashMove = board.fromShort(TranspositionTable.move(entry));
+            staticEval = TranspositionTable.eval(entry);
+        } else {
+            staticEval = Evaluation.evaluate(board, board.getSideToMove());
+        }
+        if (hashMove == PackedMove.NONE && pvNode){
+            hashMove = stack.previousPvMove(ply);
         }
 
-        if (allowNullMove && moveCount >= 4){
+        boolean inCheck = board.isInCheck();
+        // Passing is only safe when the side to move is not in check and has pieces besides pawns,
+        // otherwise zugzwang makes the null move score too optimistic
+        if (allowNullMove && !pvNode && !inCheck && depth >= 2 && staticEval >= beta && hasPieces(board)){
+            stack.currentMoves[ply] = PackedMove.NONE;
             board.skipMove();
-            int score = -max(-beta, -beta + 1, depth - 2, board, moveCount + 1, false);
+            int score = -negamax(-beta, -beta + 1, depth - 1 - NULL_MOVE_REDUCTION, board, ply + 1, false, stack);
             board.undoSkipMove();
 
-            if (score >= beta) {
-                return beta;
+            if (score >= beta){
+                return score >= MATE_BOUND ? beta : score;
             }
         }
 
+        MovePicker picker = stack.pickers[ply];
+        int counterMove = stack.counterMove(ply);
+        int[][] history = stack.history[board.getSideToMove().ordinal()];
+        picker.init(board, hashMove, stack.killers[ply][0], stack.killers[ply][1], counterMove, history);
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITE;
+        int bestMove = PackedMove.NONE;
+        int moveCount = 0;
+        int quietCount = 0;
+        int move;
+        while ((move = picker.next()) != PackedMove.NONE){
+            boolean quiet = !PackedMove.isCapture(move) && !PackedMove.isPromotion(move);
+
+            // Late move pruning: near the horizon, quiet moves this far down the ordering hardly ever beat the ones before
+            if (quiet && !pvNode && !inCheck && depth <= LATE_MOVE_PRUNING_DEPTH
+                    && moveCount >= LATE_MOVE_COUNTS[depth] && bestScore > -MATE_BOUND){
+                picker.skipQuiets();
+                continue;
+            }
+
+            moveCount++;
+            if (quiet) stack.quietsSearched[ply][quietCount++] = move;
 
-        int minScore = Integer.MAX_VALUE;
-        for (Move move : board.getSortedMoves(Color.invert(AITeam), history)){
-            board.makeMove(move, Flag.SEARCHING);
-            int score = max(alpha, beta, depth - 1, board, moveCount + 1, true);
+            stack.currentMoves[ply] = move;
+            board.makeMove(move);
+            boolean givesCheck = board.isInCheck();
+            int score;
+            if (bestMove == PackedMove.NONE){
+                score = -negamax(-beta, -alpha, depth - 1, board, ply + 1, true, stack);
+            } else {
+                // Late move reductions: later quiet moves are first searched shallower, and at full depth only
+                // if they still beat alpha
+                int reduction = 0;
+                if (quiet && depth >= 3 && moveCount > (pvNode ? 3 : 1) && !inCheck && !givesCheck){
+                    reduction = REDUCTIONS[depth][moveCount];
+                    if (pvNode) reduction--;
+                    if (move == stack.killers[ply][0] || move == stack.killers[ply][1] || move == counterMove) reduction--;
+                    reduction -= history[PackedMove.from(move)][PackedMove.to(move)] / HISTORY_REDUCTION_DIVISOR;
+                    reduction = Math.max(0, Math.min(reduction, depth - 2));
+                }
+
+                score = -negamax(-alpha - 1, -alpha, depth - 1 - reduction, board, ply + 1, true, stack);
+                if (score > alpha && reduction > 0){
+                    score = -negamax(-alpha - 1, -alpha, depth - 1, board, ply + 1, true, stack);
+                }
+                if (score > alpha && score < beta){
+                    score = -negamax(-beta, -alpha, depth - 1, board, ply + 1, true, stack);
+                }
+            }
             board.undoMove(move);
-            minScore = Math.min(minScore, score);
-            beta = Math.min(beta, minScore);
-            if (beta <= alpha){
-                break;
+            // The score of an aborted child is meaningless, so it must not touch the stats, PV or window
+            if (stopSearch){
+                return 0;
+            }
+
+            if (score > bestScore){
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha){
+                    alpha = score;
+                    stack.updatePv(ply, move);
+                    if (alpha >= beta){
+                        if (quiet) stack.updateQuietStats(ply, move, depth, quietCount);
+                        break;
+                    }
+                }
             }
         }
 
-        TranspositionEntry newEntry = new TranspositionEntry(minScore, depth);
-        if (!transpositionTable.containsValue(newEntry)){
-            transpositionTable.put(boardHash, newEntry);
+        // An abandoned search must not reach the transposition table
+        if (isAborted(stack)){
+            return 0;
         }
 
-        if (depth <= 0 && isQuietPosition(board)){
-            return quiescenceSearch(alpha, beta, board);
+        // No legal moves, the side to move is either mated or stalemated
+        if (bestMove == PackedMove.NONE){
+            return inCheck ? -Evaluation.MATE_SCORE + ply : Evaluation.DRAW_SCORE;
         }
 
-        return minScore;
+        storeEntry(boardHash, bestMove, bestScore, staticEval, depth, originalAlpha, beta, ply);
+        return bestScore;
     }
-    /**
 
-     This method is used as the max function in the alpha-beta pruning algorithm. It searches for the maximum score
-     available in a game state by calling the min function on the resulting game states from each move.
-     It evaluates the board if the maximum depth is reached or the game is over, otherwise it generates and
-     evaluates resulting game states from each move and returns the maximum score available.
-     @param alpha the alpha value for alpha-beta pruning
-     @param beta the beta value for alpha-beta pruning
-     @param depth the current depth of the search
-     @param startTime the start time of the search
-     @param searchCompleted an AtomicBoolean flag indicating if the search was completed
-     @param board the current game board state to search
-     @return the maximum score available from the resulting game states
+    /**
+     * Checks if the side to move has a piece other than pawns and its king, see the null move in negamax
+     * @param board The board to check
+     * @return Whether a knight, bishop, rook or queen of the side to move is on the board
      */
-    public int max(int alpha, int beta, int depth, Board board, int moveCount, boolean allowNullMove){
-        if (depth <= 0 || Utility.isGameOver(board)){
-            return Evaluation.evaluate(board, AITeam);
-        }
-        long boardHash = board.zobristHashCode();
-        TranspositionEntry entry = transpositionTable.get(boardHash);
-        if (entry != null && entry.depth() >= depth){
-            return (int) entry.score();
-        }
-
-        if (allowNullMove && moveCount >= 4){
-            board.skipMove();
-            int score = -min(-beta, -beta + 1, depth - 2, board, moveCount, false);
-            board.undoSkipMove();
-
-            if (score >= beta) {
-                return beta;
-            }
-        }
-
-        int maxScore = Integer.MIN_VALUE;
-        for (Move move : board.getSortedMoves(AITeam, history)){
-            board.makeMove(move, Flag.SEARCHING);
-            int score = min(alpha, beta, depth - 1, board, moveCount + 1, true);
-            board.undoMove(move);
-
-            maxScore = Math.max(maxScore, score);
-            alpha = Math.max(alpha, maxScore);
-
-            if (beta <= alpha){
-                break;
-            }
-        }
-        TranspositionEntry newEntry = new TranspositionEntry(maxScore, depth);
-        if (!transpositionTable.containsValue(newEntry)){
-            transpositionTable.put(boardHash, newEntry);
-        }
-        return maxScore;
+    private static boolean hasPieces(Board board){
+        Color us = board.getSideToMove();
+        int offset = us.ordinal() * 6;
+        long pawnsAndKing = board.getBitboard(offset + Bitboard.PAWN) | board.getBitboard(offset + Bitboard.KING);
+        return (board.getOccupancy(us) & ~pawnsAndKing) != 0;
     }
-    /**
 
-     This helper method checks if a board state is a quiet position or not, meaning there are no available captures
-     @param board the game board state to check
-     @return true if the board state is a quiet position, false otherwise
+    /**
+     * Stores a searched node in the transposition table, bounding its score by the window it was searched with
+     * @param key The zobrist key of the node
+     * @param bestMove The best move of the node
+     * @param score The score of the node
+     * @param staticEval The static evaluation of the node
+     * @param depth The depth the node was searched to
+     * @param alpha The alpha value the node was entered with
+     * @param beta The beta value the node was entered with
+     * @param ply The distance of the node from the root
      */
-    private boolean isQuietPosition(Board board){
-        List<Move> captures = board.getMoves(MoveType.CAPTURE, AITeam);
-        captures.addAll(board.getMoves(MoveType.CAPTURE, Color.invert(AITeam)));
-
-        return captures.isEmpty();
+    private void storeEntry(long key, int bestMove, int score, int staticEval, int depth, int alpha, int beta, int ply){
+        int bound = score <= alpha ? TranspositionTable.UPPER : score >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        transpositionTable.store(key, PackedMove.toShort(bestMove), score, staticEval, depth, bound, ply);
     }
+
     /**
 
-     This helper method performs a quiescence search on a game board state.
-     A quiescence search is performed when the current state of the game is considered a quiet position,
-     which means there are no available captures on the board.
-     It evaluates the board if the maximum depth is reached, otherwise it generates and evaluates resulting
-     game states from each capture move and returns the maximum score available.
-     @param alpha the alpha value for alpha-beta pruning
-     @param beta the beta value for alpha-beta pruning
+     This helper method searches only captures and promotions at the horizon, so the search never stops in the middle
+     of an exchange. The side to move may stand pat on its static evaluation instead of capturing, except when in
+     check, where every evasion is searched. Captures that lose material by static exchange evaluation are skipped,
+     and so are captures that could not bring the score back to alpha even if the piece was won for free.
+     @param alpha the score the side to move is already guaranteed
+     @param beta the score the opponent is already guaranteed, negated
      @param board the current game board state to search
-     @return the maximum score available from the resulting game states
+     @param ply the distance from the root, used to pick the move buffer
+     @param stack the move buffers for this thread
+     @return the score of the position for the side to move, bounded by the window
      */
-    private int quiescenceSearch(int alpha, int beta, Board board){
-        int standPat = Evaluation.evaluate(board, Color.invert(AITeam));
-
-        if (standPat >= beta){
-            return beta;
+    int quiescenceSearch(int alpha, int beta, Board board, int ply, SearchStack stack){
+        stack.pvLength[ply] = ply;
+        if (isAborted(stack)){
+            return 0;
+        }
+        if (ply >= SearchStack.MAX_PLY){
+            return Evaluation.evaluate(board, board.getSideToMove());
         }
 
-        if (alpha < standPat){
-            alpha = standPat;
+        long boardHash = board.zobristHashCode();
+        long entry = transpositionTable.probe(boardHash);
+        if (TranspositionTable.isCutoff(entry, 0, alpha, beta, ply)){
+            return TranspositionTable.score(entry, ply);
+        }
+        int staticEval = entry != TranspositionTable.MISS ? TranspositionTable.eval(entry) : Evaluation.evaluate(board, board.getSideToMove());
+
+        boolean inCheck = board.isInCheck();
+        MovePicker picker = stack.pickers[ply];
+        int bestScore;
+        if (inCheck){
+            bestScore = -INFINITE;
+            picker.init(board, PackedMove.NONE, PackedMove.NONE, PackedMove.NONE, PackedMove.NONE, stack.history[board.getSideToMove().ordinal()]);
+        } else {
+            bestScore = staticEval;
+            if (bestScore >= beta){
+                return bestScore;
+            }
+            picker.initCaptures(board);
         }
 
-        for (Move move : board.getSortedMoves(Color.invert(AITeam), history)){
-            if (move.getCapturedPiece() == null){
+        int originalAlpha = alpha;
+        alpha = Math.max(alpha, bestScore);
+        int bestMove = PackedMove.NONE;
+        int move;
+        while ((move = picker.next()) != PackedMove.NONE){
+            if (!inCheck && !PackedMove.isPromotion(move)
+                    && staticEval + Evaluation.MATERIAL_WEIGHT * Utility.getValueByIndex(PackedMove.captured(move)) + DELTA_MARGIN <= alpha){
                 continue;
             }
-            board.makeMove(move, Flag.SEARCHING);
-            int score = -quiescenceSearch(-beta, -alpha, board);
-            board.undoMove(move);
 
-            if (score >= beta){
-                return beta;
+            board.makeMove(move);
+            int score = -quiescenceSearch(-beta, -alpha, board, ply + 1, stack);
+            board.undoMove(move);
+            // The score of an aborted child is meaningless, so it must not touch the stats, PV or window
+            if (stopSearch){
+                return 0;
             }
-            if (score > alpha){
-                alpha = score;
+
+            if (score > bestScore){
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha){
+                    alpha = score;
+                    stack.updatePv(ply, move);
+                    if (alpha >= beta){
+                        break;
+                    }
+                }
             }
         }
 
-        return alpha;
-    }
-    /**
+        if (isAborted(stack)){
+            return 0;
+        }
 
-     This helper method updates the history table with the move made and the depth of the search
-     @param move the move that was made
-     @param depth the depth of the search when the move was made
-     */
-    private void updateHistory(Move move, int depth){
-        history[move.getFromRow()][move.getFromCol()] += depth * depth;
-    }
+        // Checkmated, every evasion was searched
+        if (inCheck && bestMove == PackedMove.NONE){
+            return -Evaluation.MATE_SCORE + ply;
+        }
 
-    /**
-     * Helper method for increasing depth
-     */
-    public int getNumLegalMoves(Board board, Color color){
-        return board.getSortedMoves(color, history).size();
+        storeEntry(boardHash, bestMove, bestScore, staticEval, 0, originalAlpha, beta, ply);
+        return bestScore;
     }
 }
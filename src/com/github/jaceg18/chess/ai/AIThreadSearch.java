@@ -31,6 +31,7 @@ public class AIThreadSearch extends SwingWorker<Void, Void> {
     @Override
     protected Void doInBackground() {
         Board board = ai.move(gui.getBoard().getCopy());
+        if (!ai.getSearchInfo().isEmpty()) System.out.println(ai.getSearchInfo());
         gui.setBoard(board);
         return null;
     }
@@ -40,7 +41,6 @@ public class AIThreadSearch extends SwingWorker<Void, Void> {
      */
     @Override
     protected void done() {
-        GUI.getController().switchTurns();
         gui.AI_THINKING = false;
     }
 }
@@ -0,0 +1,204 @@
+package com.github.jaceg18.chess.ai;
+
+import com.github.jaceg18.chess.Bitboard;
+import com.github.jaceg18.chess.Board;
+import com.github.jaceg18.chess.PackedMove;
+import com.github.jaceg18.chess.Utility;
+
+/**
+ * Hands out the moves of a position one at a time in stages: the hash move, good captures, killers,
+ * the counter move, quiet moves by history and finally captures that lose material by static exchange
+ * evaluation. Each stage is only generated once the previous one is used up, so a node that cuts off
+ * early never generates or sorts the rest.
+ * One picker is kept per ply and reused, so picking moves does not allocate.
+ */
+class MovePicker {
+    private static final int HASH = 0;
+    private static final int GENERATE_CAPTURES = 1;
+    private static final int GOOD_CAPTURES = 2;
+    private static final int FIRST_KILLER = 3;
+    private static final int SECOND_KILLER = 4;
+    private static final int COUNTER_MOVE = 5;
+    private static final int GENERATE_QUIETS = 6;
+    private static final int QUIETS = 7;
+    private static final int BAD_CAPTURES = 8;
+    private static final int DONE = 9;
+
+    private static final int PROMOTION_SCORE = 10_000;
+
+    private final int[] moves = new int[Board.MAX_MOVES];
+    private final int[] scores = new int[Board.MAX_MOVES];
+    private final int[] badCaptures = new int[Board.MAX_MOVES];
+
+    private Board board;
+    private int[][] history;
+    private int hashMove;
+    private int firstKiller;
+    private int secondKiller;
+    private int counterMove;
+    private boolean capturesOnly;
+    private int stage;
+    private int index;
+    private int count;
+    private int badCaptureCount;
+    private int badCaptureIndex;
+
+    /**
+     * Starts picking every legal move of a position
+     *
+     * @param board        The board to pick moves on
+     * @param hashMove     The move to try first, PackedMove.NONE for none
+     * @param firstKiller  The first killer move of this ply, PackedMove.NONE for none
+     * @param secondKiller The second killer move of this ply, PackedMove.NONE for none
+     * @param counterMove  The move that last refuted the opponent's previous move, PackedMove.NONE for none
+     * @param history      The history scores of the side to move by from and to square used to order quiet moves
+     */
+    void init(Board board, int hashMove, int firstKiller, int secondKiller, int counterMove, int[][] history) {
+        this.board = board;
+        this.hashMove = hashMove;
+        this.firstKiller = firstKiller;
+        this.secondKiller = secondKiller;
+        this.counterMove = counterMove;
+        this.history = history;
+        this.capturesOnly = false;
+        this.stage = HASH;
+        this.badCaptureCount = 0;
+        this.badCaptureIndex = 0;
+    }
+
+    /**
+     * Starts picking only the captures and promotions of a position for quiescence search.
+     * Captures that lose material by static exchange evaluation are pruned.
+     *
+     * @param board The board to pick moves on
+     */
+    void initCaptures(Board board) {
+        init(board, PackedMove.NONE, PackedMove.NONE, PackedMove.NONE, PackedMove.NONE, null);
+        this.capturesOnly = true;
+        this.stage = GENERATE_CAPTURES;
+    }
+
+    /**
+     * Stops handing out quiet moves, killers and counter move included, once late move pruning has given up
+     * on them. Captures that lose material are still handed out afterwards
+     */
+    void skipQuiets() {
+        if (stage >= FIRST_KILLER && stage <= QUIETS) stage = BAD_CAPTURES;
+    }
+
+    /**
+     * Gets the next move to search
+     *
+     * @return The next legal move, PackedMove.NONE once every move has been handed out
+     */
+    int next() {
+        while (true) {
+            switch (stage) {
+                case HASH -> {
+                    stage = GENERATE_CAPTURES;
+                    if (board.isLegalMove(hashMove)) return hashMove;
+                }
+                case GENERATE_CAPTURES -> {
+                    count = board.generateLegalMoves(moves, Board.NOISY_MOVES);
+                    scoreCaptures();
+                    index = 0;
+                    stage = GOOD_CAPTURES;
+                }
+                case GOOD_CAPTURES -> {
+                    while (index < count) {
+                        int move = pickBest();
+                        if (move == hashMove) continue;
+                        if (isBadCapture(move)) {
+                            if (!capturesOnly) badCaptures[badCaptureCount++] = move;
+                            continue;
+                        }
+                        return move;
+                    }
+                    stage = capturesOnly ? DONE : FIRST_KILLER;
+                }
+                case FIRST_KILLER -> {
+                    stage = SECOND_KILLER;
+                    if (isUsableKiller(firstKiller)) return firstKiller;
+                }
+                case SECOND_KILLER -> {
+                    stage = COUNTER_MOVE;
+                    if (secondKiller != firstKiller && isUsableKiller(secondKiller)) return secondKiller;
+                }
+                case COUNTER_MOVE -> {
+                    stage = GENERATE_QUIETS;
+                    if (counterMove != firstKiller && counterMove != secondKiller && isUsableKiller(counterMove)) return counterMove;
+                }
+                case GENERATE_QUIETS -> {
+                    count = board.generateLegalMoves(moves, Board.QUIET_MOVES);
+                    for (int i = 0; i < count; i++) scores[i] = history[PackedMove.from(moves[i])][PackedMove.to(moves[i])];
+                    index = 0;
+                    stage = QUIETS;
+                }
+                case QUIETS -> {
+                    while (index < count) {
+                        int move = pickBest();
+                        if (move != hashMove && move != firstKiller && move != secondKiller && move != counterMove) return move;
+                    }
+                    stage = BAD_CAPTURES;
+                }
+                case BAD_CAPTURES -> {
+                    if (badCaptureIndex < badCaptureCount) return badCaptures[badCaptureIndex++];
+                    stage = DONE;
+                }
+                default -> {
+                    return PackedMove.NONE;
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper for next that scores captures by MVV-LVA, with promotions ahead of quiet captures of the same victim
+     */
+    private void scoreCaptures() {
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int score = PackedMove.isCapture(move) ? Utility.getValueByIndex(PackedMove.captured(move)) * 10 - Utility.getValueByIndex(PackedMove.piece(move)) : 0;
+            if (PackedMove.isPromotion(move)) score += PackedMove.promotionType(move) == Bitboard.QUEEN ? PROMOTION_SCORE : -PROMOTION_SCORE;
+            scores[i] = score;
+        }
+    }
+
+    /**
+     * Helper for next that treats a capture as bad when it loses material by static exchange evaluation.
+     * Taking a piece worth at least the capturing one can never lose, so those skip the exchange.
+     */
+    private boolean isBadCapture(int move) {
+        if (!PackedMove.isCapture(move) || PackedMove.isPromotion(move)) return false;
+        if (Utility.getValueByIndex(PackedMove.piece(move)) <= Utility.getValueByIndex(PackedMove.captured(move))) return false;
+        return board.see(move) < 0;
+    }
+
+    /**
+     * Helper for next that checks a killer or counter move is a quiet move, not the hash move and legal in
+     * this position
+     */
+    private boolean isUsableKiller(int killer) {
+        return killer != PackedMove.NONE && killer != hashMove && !PackedMove.isCapture(killer)
+                && !PackedMove.isPromotion(killer) && board.isLegalMove(killer);
+    }
+
+    /**
+     * Helper for next that swaps the best scored remaining move into place and returns it
+     */
+    private int pickBest() {
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[best]) best = i;
+        }
+
+        int move = moves[best];
+        int score = scores[best];
+        moves[best] = moves[index];
+        scores[best] = scores[index];
+        moves[index] = move;
+        scores[index] = score;
+        index++;
+        return move;
+    }
+}
@@ -0,0 +1,179 @@
+package com.github.jaceg18.chess.ai;
+
+import com.github.jaceg18.chess.Board;
+import com.github.jaceg18.chess.PackedMove;
+
+import java.util.Arrays;
+
+/**
+ * Preallocated move pickers, killer moves and scratch buffers for every ply of a search, along with the
+ * counter move and history tables that order quiet moves.
+ * Each search thread owns one, so generating and ordering moves never touches the heap and threads never
+ * share ordering state.
+ */
+class SearchStack {
+    static final int MAX_PLY = 64;
+    // History scores stay within plus and minus this, every update pulls a score towards it by the update's share
+    private static final int HISTORY_MAX = 16_384;
+    private static final int MAX_HISTORY_BONUS = 1_200;
+
+    final MovePicker[] pickers = new MovePicker[MAX_PLY];
+    final int[][] killers = new int[MAX_PLY][2];
+    // Butterfly history by color, from square and to square of quiet moves
+    final int[][][] history = new int[2][64][64];
+    // The quiet move that last refuted a move, by that move's piece and to square
+    private final int[][] counterMoves = new int[12][64];
+    // The move played at each ply, PackedMove.NONE for a null move
+    final int[] currentMoves = new int[MAX_PLY + 1];
+    // The quiet moves searched at each ply, which lose history when another quiet move cuts off
+    final int[][] quietsSearched = new int[MAX_PLY][Board.MAX_MOVES];
+    // Triangular PV table, pv[ply] holds the best line found from ply onwards up to pvLength[ply]
+    final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    final int[] pvLength = new int[MAX_PLY + 1];
+    // Best line of the last completed iteration, tried first while the next one follows it
+    private final int[] previousPv = new int[MAX_PLY + 1];
+    private int previousPvLength;
+    // Whether this stack belongs to a lazy SMP helper thread, whose search is abandoned once the main thread is done
+    boolean helper;
+    // Number of abort checks made, the main thread polls the clock on every 1024th
+    int checks;
+    // Times the aspiration window of the current iteration failed low and high
+    int failLows;
+    int failHighs;
+    // Root moves of the current iteration searched again with the full window after beating alpha
+    int researches;
+
+    SearchStack() {
+        for (int ply = 0; ply < MAX_PLY; ply++) pickers[ply] = new MovePicker();
+    }
+
+    /**
+     * Sets the best line of a ply to a move followed by the best line found at the next ply
+     *
+     * @param ply  The ply of the move
+     * @param move The packed move
+     */
+    void updatePv(int ply, int move) {
+        pv[ply][ply] = move;
+        int length = Math.max(pvLength[ply + 1], ply + 1);
+        System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, length - ply - 1);
+        pvLength[ply] = length;
+    }
+
+    /**
+     * Keeps the best line of a completed iteration for ordering the next one
+     */
+    void savePv() {
+        previousPvLength = pvLength[0];
+        System.arraycopy(pv[0], 0, previousPv, 0, previousPvLength);
+    }
+
+    /**
+     * Prepares for the search of a new root position: the previous best line and the killers no longer apply,
+     * and history is halved so the new search outweighs the old one
+     */
+    void newSearch() {
+        previousPvLength = 0;
+        for (int[] plyKillers : killers) Arrays.fill(plyKillers, PackedMove.NONE);
+        for (int[][] colorHistory : history) {
+            for (int[] fromHistory : colorHistory) {
+                for (int to = 0; to < 64; to++) fromHistory[to] /= 2;
+            }
+        }
+    }
+
+    /**
+     * Gets the best line of the last completed iteration
+     *
+     * @return The moves in coordinate notation separated by spaces
+     */
+    String getPv() {
+        StringBuilder line = new StringBuilder();
+        for (int ply = 0; ply < previousPvLength; ply++) {
+            if (ply > 0) line.append(' ');
+            line.append(PackedMove.toCoordinate(previousPv[ply]));
+        }
+        return line.toString();
+    }
+
+    /**
+     * Summarizes the last completed iteration
+     *
+     * @param depth The depth of the iteration
+     * @param score The score of the iteration
+     * @return The depth, score, aspiration fail lows and fail highs, root re-searches and best line
+     */
+    String getSearchInfo(int depth, int score) {
+        return "depth " + depth + " score " + score + " fail lows " + failLows + " fail highs " + failHighs
+                + " researches " + researches + " pv " + getPv();
+    }
+
+    /**
+     * Gets the move the previous iteration's best line played at a ply, as long as the moves leading to the
+     * node are that line's
+     *
+     * @param ply The ply of the node
+     * @return The packed move, PackedMove.NONE if the line is shorter or the node is off it
+     */
+    int previousPvMove(int ply) {
+        if (ply >= previousPvLength) return PackedMove.NONE;
+        for (int i = 0; i < ply; i++) {
+            if (currentMoves[i] != previousPv[i]) return PackedMove.NONE;
+        }
+        return previousPv[ply];
+    }
+
+    /**
+     * Gets the counter move to the move played at the previous ply
+     *
+     * @param ply The ply of the node
+     * @return The packed counter move, PackedMove.NONE for none
+     */
+    int counterMove(int ply) {
+        int previousMove = ply > 0 ? currentMoves[ply - 1] : PackedMove.NONE;
+        if (previousMove == PackedMove.NONE) return PackedMove.NONE;
+        return counterMoves[PackedMove.piece(previousMove)][PackedMove.to(previousMove)];
+    }
+
+    /**
+     * Rewards a quiet move that caused a cutoff as killer, counter move and in history,
+     * and takes history from the quiet moves searched before it
+     *
+     * @param ply        The ply of the cutoff
+     * @param move       The packed move
+     * @param depth      The remaining depth at the cutoff
+     * @param quietCount The number of quiet moves searched at the ply, the move included as the last one
+     */
+    void updateQuietStats(int ply, int move, int depth, int quietCount) {
+        storeKiller(ply, move);
+        int previousMove = ply > 0 ? currentMoves[ply - 1] : PackedMove.NONE;
+        if (previousMove != PackedMove.NONE) counterMoves[PackedMove.piece(previousMove)][PackedMove.to(previousMove)] = move;
+
+        int bonus = Math.min(depth * depth * 16, MAX_HISTORY_BONUS);
+        updateHistory(move, bonus);
+        for (int i = 0; i < quietCount - 1; i++) updateHistory(quietsSearched[ply][i], -bonus);
+    }
+
+    /**
+     * Helper for updateQuietStats that moves a history score by a bonus or malus, by less the closer it
+     * already is to HISTORY_MAX in that direction
+     */
+    private void updateHistory(int move, int bonus) {
+        int[] scores = history[PackedMove.piece(move) / 6][PackedMove.from(move)];
+        int to = PackedMove.to(move);
+        scores[to] += bonus - scores[to] * Math.abs(bonus) / HISTORY_MAX;
+    }
+
+    /**
+     * Remembers a quiet move that caused a cutoff, keeping the previous killer as the second one
+     *
+     * @param ply  The ply of the cutoff
+     * @param move The packed move
+     */
+    void storeKiller(int ply, int move) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.jaceg18.chess.ai;
+
+/**
+ * Decides how long the iterative deepening of one move may run.
+ * The hard limit is the budget itself and aborts the search wherever it is. The soft limit is checked between
+ * iterations: no new iteration is started past it, as it would most likely not finish in time.
+ * The soft limit shrinks while the best move stays the same and grows when the score drops.
+ */
+class TimeManager {
+    // Part of the budget after which no new iteration is started, in percent
+    private static final int SOFT_LIMIT_PERCENT = 40;
+    // Iterations the best move has to stay the same before the soft limit shrinks
+    private static final int STABLE_ITERATIONS = 3;
+    // Score drop between iterations that extends the soft limit
+    private static final int SCORE_DROP = 30;
+
+    private long startTime;
+    private long softLimit;
+    private long hardLimit;
+    private int bestMove;
+    private int score;
+    private int stableIterations;
+
+    /**
+     * Starts timing a search
+     *
+     * @param budgetMillis The time the search may take, 0 or less for no limit
+     */
+    void start(long budgetMillis) {
+        startTime = System.currentTimeMillis();
+        hardLimit = budgetMillis > 0 ? budgetMillis : Long.MAX_VALUE;
+        softLimit = budgetMillis > 0 ? budgetMillis * SOFT_LIMIT_PERCENT / 100 : Long.MAX_VALUE;
+        stableIterations = 0;
+    }
+
+    /**
+     * Checks if the search has to stop immediately
+     *
+     * @return Whether the hard limit is reached
+     */
+    boolean isHardLimitReached() {
+        return elapsed() >= hardLimit;
+    }
+
+    /**
+     * Records a finished iteration and checks if another one should be started
+     *
+     * @param depth    The depth of the iteration
+     * @param bestMove The best move of the iteration
+     * @param score    The score of the iteration
+     * @return Whether the search should stop
+     */
+    boolean isDone(int depth, int bestMove, int score) {
+        if (hardLimit == Long.MAX_VALUE) return false;
+
+        stableIterations = depth > 1 && bestMove == this.bestMove ? stableIterations + 1 : 0;
+        boolean scoreDropped = depth > 1 && score <= this.score - SCORE_DROP;
+        this.bestMove = bestMove;
+        this.score = score;
+
+        long limit = softLimit;
+        if (stableIterations >= STABLE_ITERATIONS) limit /= 2;
+        if (scoreDropped) limit *= 2;
+        return elapsed() >= Math.min(limit, hardLimit);
+    }
+
+    /**
+     * Helper that gets the time since the search started
+     */
+    private long elapsed() {
+        return System.currentTimeMillis() - startTime;
+    }
+}
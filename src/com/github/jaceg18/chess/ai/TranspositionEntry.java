@@ -1,3 +0,0 @@
-package com.github.jaceg18.chess.ai;
-
-public record TranspositionEntry(long score, int depth) {}
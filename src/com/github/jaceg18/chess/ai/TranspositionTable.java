@@ -0,0 +1,183 @@
+package com.github.jaceg18.chess.ai;
+
+import com.github.jaceg18.chess.evaluation.Evaluation;
+
+/**
+ * A fixed size transposition table shared by every search thread without locks.
+ * Entries are two longs, the position key xored with the data and the data itself, so a probe that reads
+ * halves of two different writes fails the key check instead of returning a mixed entry.
+ * Each bucket holds a depth-preferred slot, only replaced by deeper searches or entries of an older search,
+ * and an always-replace slot that takes everything else.
+ * Mate scores are stored as the distance from the stored position rather than from the root, so they stay
+ * correct when the position is reached at another ply.
+ *
+ * <pre>
+ * bits  0-15  best move (see PackedMove.toShort), PackedMove.NONE for none
+ * bits 16-36  score
+ * bits 37-52  static evaluation
+ * bits 53-58  depth
+ * bits 59-60  bound (UPPER, LOWER or EXACT)
+ * bits 61-63  generation of the search that stored it
+ * </pre>
+ */
+class TranspositionTable {
+    // Returned by probe when the position is not stored, stored entries never equal it as their bound is never 0
+    static final long MISS = 0L;
+
+    // The score is at most the stored one, every move failed low
+    static final int UPPER = 1;
+    // The score is at least the stored one, a move failed high
+    static final int LOWER = 2;
+    // The score is the stored one
+    static final int EXACT = 3;
+
+    // Scores further from 0 than this are mate scores
+    private static final int MATE_BOUND = Evaluation.MATE_SCORE - SearchStack.MAX_PLY;
+    private static final int MAX_EVAL = (1 << 15) - 1;
+
+    private static final int BUCKET_BYTES = 32;
+    // Longs per bucket, two slots of two longs each
+    private static final int BUCKET_LONGS = 4;
+    // The most buckets a long array can hold while keeping their count a power of two
+    private static final long MAX_BUCKETS = (1L << 30) / BUCKET_LONGS;
+    private static final int DEPTH_SLOT = 0;
+    private static final int REPLACE_SLOT = 2;
+
+    private final long[] table;
+    private final long bucketMask;
+    private int generation;
+
+    /**
+     * Creates a table using at most the given amount of memory
+     *
+     * @param sizeMb The size in megabytes, rounded down to a power of two number of buckets and capped at the
+     *               largest table a Java array can hold (8 GB)
+     */
+    TranspositionTable(int sizeMb) {
+        long buckets = Long.highestOneBit(Math.max(1L, Math.min(MAX_BUCKETS, (long) sizeMb * 1024 * 1024 / BUCKET_BYTES)));
+        table = new long[(int) (buckets * BUCKET_LONGS)];
+        bucketMask = buckets - 1;
+    }
+
+    /**
+     * Starts a new search, making the entries of earlier searches the first to be replaced
+     */
+    void newSearch() {
+        generation = (generation + 1) & 7;
+    }
+
+    /**
+     * Looks up a position
+     *
+     * @param key The zobrist key of the position
+     * @return The entry data, MISS if the position is not stored
+     */
+    long probe(long key) {
+        int index = index(key);
+        for (int slot = index; slot <= index + REPLACE_SLOT; slot += 2) {
+            long data = table[slot + 1];
+            if ((table[slot] ^ data) == key && data != MISS) return data;
+        }
+        return MISS;
+    }
+
+    /**
+     * Stores the result of a search
+     *
+     * @param key   The zobrist key of the position
+     * @param move  The best move found, PackedMove.NONE for none
+     * @param score The score of the position, mate scores counted from the root
+     * @param eval  The static evaluation of the position
+     * @param depth The depth the position was searched to
+     * @param bound Whether the score is an UPPER, LOWER or EXACT bound
+     * @param ply   The distance of the position from the root
+     */
+    void store(long key, int move, int score, int eval, int depth, int bound, int ply) {
+        int index = index(key);
+        eval = Math.max(-MAX_EVAL, Math.min(MAX_EVAL, eval));
+        long data = (move & 0xFFFFL)
+                | ((scoreToTable(score, ply) & 0x1FFFFFL) << 16)
+                | ((eval & 0xFFFFL) << 37)
+                | ((long) depth << 53)
+                | ((long) bound << 59)
+                | ((long) generation << 61);
+
+        long preferred = table[index + DEPTH_SLOT + 1];
+        boolean samePosition = (table[index + DEPTH_SLOT] ^ preferred) == key;
+        int slot = preferred == MISS || samePosition || generation(preferred) != generation || depth(preferred) <= depth
+                ? DEPTH_SLOT : REPLACE_SLOT;
+
+        table[index + slot] = key ^ data;
+        table[index + slot + 1] = data;
+    }
+
+    static int move(long data) {
+        return (int) data & 0xFFFF;
+    }
+
+    /**
+     * Gets the score of an entry
+     *
+     * @param data The entry data
+     * @param ply  The distance of the probed position from the root
+     * @return The score, mate scores counted from the root
+     */
+    static int score(long data, int ply) {
+        int score = (int) (data << 27 >> 43);
+        if (score > MATE_BOUND) return score - ply;
+        if (score < -MATE_BOUND) return score + ply;
+        return score;
+    }
+
+    static int eval(long data) {
+        return (int) (data << 11 >> 48);
+    }
+
+    static int depth(long data) {
+        return (int) (data >>> 53) & 63;
+    }
+
+    static int bound(long data) {
+        return (int) (data >>> 59) & 3;
+    }
+
+    private static int generation(long data) {
+        return (int) (data >>> 61);
+    }
+
+    /**
+     * Checks if an entry decides the score of a node without searching it
+     *
+     * @param data  The entry data
+     * @param depth The depth the node is searched to
+     * @param alpha The alpha value of the node
+     * @param beta  The beta value of the node
+     * @param ply   The distance of the node from the root
+     * @return Whether the entry is deep enough and its bound puts the score outside the window or makes it exact
+     */
+    static boolean isCutoff(long data, int depth, int alpha, int beta, int ply) {
+        if (data == MISS || depth(data) < depth) return false;
+        int score = score(data, ply);
+        return switch (bound(data)) {
+            case EXACT -> true;
+            case LOWER -> score >= beta;
+            default -> score <= alpha;
+        };
+    }
+
+    /**
+     * Helper for store that turns a mate score counted from the root into one counted from the stored position
+     */
+    private static int scoreToTable(int score, int ply) {
+        if (score > MATE_BOUND) return score + ply;
+        if (score < -MATE_BOUND) return score - ply;
+        return score;
+    }
+
+    /**
+     * Helper for probe and store that gets the first array index of a key's bucket
+     */
+    private int index(long key) {
+        return (int) (key & bucketMask) << 2;
+    }
+}
@@ -0,0 +1,182 @@
+package com.github.jaceg18.chess.evaluation;
+
+import com.github.jaceg18.chess.Bitboard;
+import com.github.jaceg18.chess.Board;
+import com.github.jaceg18.chess.identity.Color;
+
+import java.util.Arrays;
+
+/**
+ * The squares each team attacks in one position, how many of its pieces attack each square,
+ * and the mobility counts that fall out of the same attack bitboards.
+ * Built once per evaluated position and read by every evaluation term that needs attack information.
+ * Each thread reuses one instance, see get.
+ */
+public class AttackMap {
+    private static final ThreadLocal<AttackMap> MAPS = ThreadLocal.withInitial(AttackMap::new);
+
+    private final long[] attacks = new long[2];
+    private final int[][] attackCounts = new int[2][64];
+    private final int[] mobility = new int[2];
+    private Board board;
+    private long key;
+
+    /**
+     * Gets this thread's attack map for a board, only rebuilding it when the board or its position changed
+     *
+     * @param board The board to map
+     * @return The attack map of the board's current position
+     */
+    public static AttackMap get(Board board) {
+        AttackMap map = MAPS.get();
+        if (map.board != board || map.key != board.zobristHashCode()) map.compute(board);
+        return map;
+    }
+
+    /**
+     * Builds the attack map of a board's current position
+     *
+     * @param board The board to map
+     */
+    public void compute(Board board) {
+        this.board = board;
+        this.key = board.zobristHashCode();
+        Arrays.fill(attacks, 0L);
+        Arrays.fill(mobility, 0);
+        Arrays.fill(attackCounts[0], 0);
+        Arrays.fill(attackCounts[1], 0);
+
+        long occupied = board.getOccupied();
+        for (int color = 0; color < 2; color++) {
+            Color team = color == 0 ? Color.WHITE : Color.BLACK;
+            long own = board.getOccupancy(team);
+            long enemy = occupied & ~own;
+
+            for (int i = 0; i < board.getPieceCount(team); i++) {
+                int square = board.getPieceSquare(team, i);
+                int type = board.getPieceIndex(square) % 6;
+                long pieceAttacks = switch (type) {
+                    case Bitboard.PAWN -> Bitboard.PAWN_ATTACKS[color][square];
+                    case Bitboard.KNIGHT -> Bitboard.KNIGHT_ATTACKS[square];
+                    case Bitboard.BISHOP -> Bitboard.bishopAttacks(square, occupied);
+                    case Bitboard.ROOK -> Bitboard.rookAttacks(square, occupied);
+                    case Bitboard.QUEEN -> Bitboard.queenAttacks(square, occupied);
+                    default -> Bitboard.KING_ATTACKS[square];
+                };
+                addAttacks(color, pieceAttacks);
+
+                mobility[color] += type == Bitboard.PAWN
+                        ? getPawnMoveCount(board, color, square, pieceAttacks, enemy)
+                        : Long.bitCount(pieceAttacks & ~own);
+            }
+        }
+
+        // Castling needs the other team's attacks, so it is counted once both maps are done
+        mobility[0] += getCastleMoveCount(board, 0);
+        mobility[1] += getCastleMoveCount(board, 1);
+    }
+
+    /**
+     * Helper for compute that adds one piece's attacks to its team's map and square counts
+     */
+    private void addAttacks(int color, long pieceAttacks) {
+        attacks[color] |= pieceAttacks;
+        while (pieceAttacks != 0) {
+            attackCounts[color][Bitboard.lsb(pieceAttacks)]++;
+            pieceAttacks &= pieceAttacks - 1;
+        }
+    }
+
+    /**
+     * Helper for compute that counts a pawn's pushes, captures and en passant captures
+     */
+    private static int getPawnMoveCount(Board board, int color, int square, long pawnAttacks, long enemy) {
+        int direction = color == 0 ? -8 : 8;
+        int startRow = color == 0 ? 6 : 1;
+        long occupied = board.getOccupied();
+        int count = Long.bitCount(pawnAttacks & enemy);
+        int enPassantSquare = board.getEnPassantSquare();
+        if (enPassantSquare != -1 && (pawnAttacks & Bitboard.bit(enPassantSquare)) != 0) count++;
+
+        int push = square + direction;
+        if (push >= 0 && push < 64 && (occupied & Bitboard.bit(push)) == 0) {
+            count++;
+            if (Bitboard.row(square) == startRow && (occupied & Bitboard.bit(push + direction)) == 0) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Helper for compute that counts the castle moves a king has: the right is kept, the squares between
+     * king and rook are empty and the king is not in check and does not pass an attacked square
+     */
+    private int getCastleMoveCount(Board board, int color) {
+        Color team = color == 0 ? Color.WHITE : Color.BLACK;
+        int kingSquare = board.getKingSquare(team);
+        int rights = board.getCastlingRights() & (color == 0
+                ? Board.WHITE_KING_SIDE | Board.WHITE_QUEEN_SIDE
+                : Board.BLACK_KING_SIDE | Board.BLACK_QUEEN_SIDE);
+        if (kingSquare == -1 || rights == 0) return 0;
+
+        long occupied = board.getOccupied();
+        long enemyAttacks = attacks[1 - color];
+        if ((enemyAttacks & Bitboard.bit(kingSquare)) != 0) return 0;
+
+        int count = 0;
+        int row = Bitboard.row(kingSquare);
+        int col = Bitboard.col(kingSquare);
+        if ((rights & (Board.WHITE_KING_SIDE | Board.BLACK_KING_SIDE)) != 0) {
+            long path = 0L;
+            for (int c = col + 1; c < 7; c++) path |= Bitboard.bit(Bitboard.square(row, c));
+            if ((occupied & path) == 0 && (enemyAttacks & (Bitboard.bit(kingSquare + 1) | Bitboard.bit(kingSquare + 2))) == 0) count++;
+        }
+        if ((rights & (Board.WHITE_QUEEN_SIDE | Board.BLACK_QUEEN_SIDE)) != 0) {
+            long path = 0L;
+            for (int c = col - 1; c > 0; c--) path |= Bitboard.bit(Bitboard.square(row, c));
+            if ((occupied & path) == 0 && (enemyAttacks & (Bitboard.bit(kingSquare - 1) | Bitboard.bit(kingSquare - 2))) == 0) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Gets every square a team attacks
+     *
+     * @param color The attacking team
+     * @return The attacked squares
+     */
+    public long getAttacks(Color color) {
+        return attacks[color.ordinal()];
+    }
+
+    /**
+     * Checks if a team attacks a square
+     *
+     * @param square The square to check
+     * @param color  The attacking team
+     * @return Whether any piece of the team attacks the square
+     */
+    public boolean isAttacked(int square, Color color) {
+        return (attacks[color.ordinal()] & Bitboard.bit(square)) != 0;
+    }
+
+    /**
+     * Gets the number of a team's pieces attacking a square
+     *
+     * @param square The square to check
+     * @param color  The attacking team
+     * @return The number of attackers
+     */
+    public int getAttackCount(int square, Color color) {
+        return attackCounts[color.ordinal()][square];
+    }
+
+    /**
+     * Gets the number of sudo-legal moves a team has
+     *
+     * @param color The team
+     * @return The number of moves, castling included
+     */
+    public int getMobility(Color color) {
+        return mobility[color.ordinal()];
+    }
+}
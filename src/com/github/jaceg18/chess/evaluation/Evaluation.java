@@ -1,5 +1,6 @@
 package com.github.jaceg18.chess.evaluation;
 
+import com.github.jaceg18.chess.Bitboard;
 import com.github.jaceg18.chess.Board;
 import com.github.jaceg18.chess.Utility;
 import com.github.jaceg18.chess.identity.Color;
@@ -8,8 +9,6 @@ import com.github.jaceg18.chess.pieces.*;
 
 import java.util.*;
 import java.util.function.BiFunction;
-import java.util.function.Predicate;
-import java.util.stream.IntStream;
 
 public class Evaluation {
 
@@ -25,6 +24,9 @@ public class Evaluation {
             Bishop.class, 1,
             Knight.class, 1
     );
+    // Score of being mated at the root, mates further away score ply less so the quickest mate is preferred
+    public static final int MATE_SCORE = 1_000_000;
+    public static final int DRAW_SCORE = 0;
     public static final int MATERIAL_WEIGHT = 2;
     public static int PAWN_WEIGHT = 1;
     public static final int DEVELOPMENT_WEIGHT = 1;
@@ -70,6 +72,8 @@ public class Evaluation {
     private static final int[] WHITE_QUEEN_STARTING_SQUARE = {7, 3};
     private static final int[] BLACK_QUEEN_STARTING_SQUARE = {0, 3};
     private static final int[][] centerSquares = {{3, 3}, {3, 4}, {4, 3}, {4, 4}};
+    // TROPISM_WEIGHTS indexed by piece type (Bitboard.PAWN .. Bitboard.KING)
+    private static final int[] TROPISM_BY_TYPE = byType(TROPISM_WEIGHTS);
 
     /**
      * General method for evaluations, called by AI class.
@@ -85,9 +89,11 @@ public class Evaluation {
             PAWN_WEIGHT = 2;
         }
 
-        if (Utility.isCheckmate(board, AITeam)) return Integer.MIN_VALUE;
-        if (Utility.isCheckmate(board, opponentsTeam)) return Integer.MAX_VALUE;
-        if (Utility.isStalemate(board)) return 0;
+        // Mate and stalemate are scored by the search once a node has no legal moves
+        if (board.isInsufficientMaterial()) return DRAW_SCORE;
+
+        // Built once here, the center, mobility and check terms all read it
+        AttackMap.get(board);
 
         return getScoreDifference(board, AITeam, opponentsTeam, MATERIAL_WEIGHT, Evaluation::getMaterialScore) +
                 getScoreDifference(board, AITeam, opponentsTeam, PAWN_WEIGHT, Evaluation::getPawnScore) +
@@ -110,6 +116,16 @@ public class Evaluation {
         return weight * (scoreFunction.apply(board, AITeam) - scoreFunction.apply(board, opponentsTeam));
     }
 
+    /**
+     * Helper that turns a weight map keyed by piece class into an array indexed by piece type
+     */
+    private static int[] byType(Map<Class<? extends Piece>, Integer> weights) {
+        List<Class<? extends Piece>> types = List.of(Pawn.class, Knight.class, Bishop.class, Rook.class, Queen.class, King.class);
+        int[] byType = new int[types.size()];
+        for (int type = 0; type < byType.length; type++) byType[type] = weights.getOrDefault(types.get(type), 0);
+        return byType;
+    }
+
     /**
      * Evaluates material score
      *
@@ -119,10 +135,9 @@ public class Evaluation {
      */
     public static int getMaterialScore(Board board, Color color) {
         int score = 0;
-        List<Piece> pieces = board.getTeamPieces(color);
 
-        for (Piece piece : pieces)
-            score += piece.getValue();
+        for (int i = 0; i < board.getPieceCount(color); i++)
+            score += Utility.getValueByIndex(board.getPieceIndex(board.getPieceSquare(color, i)));
 
 
         return score;
@@ -136,16 +151,11 @@ public class Evaluation {
      * @return The evaluation of checks
      */
     public static int getCheckScore(Board board, Color color) {
-        return Utility.inCheck(board, Color.invert(color)) ? CHECK_SCORE : 0;
+        int kingSquare = board.getKingSquare(Color.invert(color));
+        return kingSquare != -1 && AttackMap.get(board).isAttacked(kingSquare, color) ? CHECK_SCORE : 0;
     }
 
 
-    /**
-     * Predicate for knight center control
-     */
-    private static final Predicate<Knight> IS_KNIGHT_IN_CENTER =
-            knight -> knight.getRow() >= 2 && knight.getRow() <= 5 && knight.getCol() >= 2 && knight.getCol() <= 5;
-
     /**
      * Evaluates center control for knights
      *
@@ -155,11 +165,15 @@ public class Evaluation {
      */
 
     private static int getKnightCenterControlScore(Board board, Color color) {
-        return board.getTeamPieces(color).stream().filter(p -> p instanceof Knight).map(p -> (Knight) p).toList()
-                .stream()
-                .filter(IS_KNIGHT_IN_CENTER)
-                .mapToInt(k -> KNIGHT_CENTER_CONTROL_SCORE)
-                .sum();
+        int score = 0;
+        for (int i = 0; i < board.getPieceCount(color); i++) {
+            int square = board.getPieceSquare(color, i);
+            int row = Bitboard.row(square);
+            int col = Bitboard.col(square);
+            if (board.getPieceIndex(square) % 6 == Bitboard.KNIGHT && row >= 2 && row <= 5 && col >= 2 && col <= 5)
+                score += KNIGHT_CENTER_CONTROL_SCORE;
+        }
+        return score;
     }
 
     /**
@@ -216,15 +230,12 @@ public class Evaluation {
      */
 
     public static int getBishopVisionScore(Board board, Color color) {
-        List<Bishop> bishops = board.getTeamPieces(color).stream().filter(p -> p instanceof Bishop).map(p -> (Bishop) p).toList();
+        long occupied = board.getOccupied();
         int score = 0;
-        for (Bishop bishop : bishops) {
-            if (Arrays.stream(new int[][]{{-1, -1}, {-1, 1}, {1, -1}, {1, 1}})
-                    .allMatch(dir -> IntStream.range(1, 8).noneMatch(n -> {
-                        int newRow = bishop.getRow() + n * dir[0];
-                        int newCol = bishop.getCol() + n * dir[1];
-                        return newRow >= 0 && newRow < 8 && newCol >= 0 && newCol < 8 && board.getPieceAt(newRow, newCol) != null;
-                    }))) {
+        for (int i = 0; i < board.getPieceCount(color); i++) {
+            int square = board.getPieceSquare(color, i);
+            // Every diagonal is open when the bishop's attacks do not reach any piece
+            if (board.getPieceIndex(square) % 6 == Bitboard.BISHOP && (Bitboard.bishopAttacks(square, occupied) & occupied) == 0) {
                 score += BISHOP_OPEN_DIAGONAL_SCORE;
             }
         }
@@ -239,38 +250,32 @@ public class Evaluation {
      * @return the score based on the team's king tropism
      */
     public static int getKingTropismScore(Board board, Color color) {
-        King opponentKing = board.getKing(Color.invert(color));
-        if (opponentKing != null) {
-            return board.getTeamPieces(color).stream().mapToInt(piece -> (7 - Math.max(Math.abs(piece.getRow() - opponentKing.getRow()), Math.abs(piece.getCol() - opponentKing.getCol()))) * TROPISM_WEIGHTS.getOrDefault(piece.getClass(), 0)).sum();
+        int kingSquare = board.getKingSquare(Color.invert(color));
+        if (kingSquare == -1) return 0;
+
+        int kingRow = Bitboard.row(kingSquare);
+        int kingCol = Bitboard.col(kingSquare);
+        int score = 0;
+        for (int i = 0; i < board.getPieceCount(color); i++) {
+            int square = board.getPieceSquare(color, i);
+            int distance = Math.max(Math.abs(Bitboard.row(square) - kingRow), Math.abs(Bitboard.col(square) - kingCol));
+            score += (7 - distance) * TROPISM_BY_TYPE[board.getPieceIndex(square) % 6];
         }
-        return 0;
+        return score;
     }
 
 
     /**
      * Returns a score based on the coordination of a team's pieces.
+     * Always 0 for now: the original version only counted the team's own pieces among the attackers of the
+     * other team, which never matched. Scoring defenders by COORDINATION_WEIGHTS is left to its own change.
      *
      * @param board the current state of the board
      * @param color the color of the team
      * @return the score based on the team's piece coordination
      */
     public static int getPieceCoordinationScore(Board board, Color color) {
-        List<Piece> pieces = board.getTeamPieces(color);
-        return pieces
-                .stream()
-                .mapToInt(
-                    piece -> Utility
-                        .getAttackingPieces(board, piece.getRow(), piece.getCol(), color)
-                        .stream()
-                        .filter(
-                                attacker -> attacker.getColor() == color
-                        ).mapToInt(
-                                attacker -> COORDINATION_WEIGHTS.getOrDefault(
-                                        attacker.getClass(), 0
-                                )
-                        )
-                        .sum()
-                ).sum();
+        return 0;
     }
 
     /**
@@ -284,15 +289,16 @@ public class Evaluation {
     public static int getKingSafetyScore(Board board, Color color) {
         int score = 0;
         GameState stage = GameState.getGameState(board);
-        King king = board.getKing(color);
-        if (king != null && stage != GameState.END) {
-            int row = king.getRow();
-            int col = king.getCol();
+        int kingSquare = board.getKingSquare(color);
+        if (kingSquare != -1 && stage != GameState.END) {
+            int row = Bitboard.row(kingSquare);
+            int col = Bitboard.col(kingSquare);
             int rowIncrease = (color == Color.BLACK) ? 1 : -1;
             int[][] offsets = {{rowIncrease, 0}, {rowIncrease, -1}, {rowIncrease, 1}};
 
-            score += king.hasCastled() ? KING_CASTLED_SCORE : 0;
-            score += !king.hasCastled() && king.hasMoved() ? -100 : 0;
+            boolean castled = board.hasCastled(color);
+            score += castled ? KING_CASTLED_SCORE : 0;
+            score += !castled && board.hasKingMoved(color) ? -100 : 0;
             score += (row == ((color == Color.WHITE) ? 7 : 0)) ? KING_EDGE_SCORE : 0;
             score += (col < 2 || col > 5) ? KING_EDGE_SCORE : 0;
 
@@ -341,13 +347,13 @@ public class Evaluation {
     public static int getCenterScore(Board board, Color color) {
         int score = 0;
         int multiplier = ((GameState.getGameState(board) == GameState.OPENING) ? 2 : 1);
-        Color opponentTeam = Color.invert(color);
+        AttackMap attackMap = AttackMap.get(board);
         for (int[] centerSquare : centerSquares) {
             Piece centerPiece = board.getPieceAt(centerSquare[0], centerSquare[1]);
             if (centerPiece != null && centerPiece.getColor() == color) {
                 score += (centerPiece instanceof Pawn ? CENTER_CONTROL_PAWN_SCORE : CENTER_CONTROL_OTHER_PIECE_SCORE) * multiplier;
             }
-            if (Utility.isAttacked(board, centerSquare[0], centerSquare[1], opponentTeam))
+            if (attackMap.isAttacked(Bitboard.square(centerSquare[0], centerSquare[1]), color))
                 score += (CENTER_ATTACK_SCORE * multiplier);
         }
         return score;
@@ -362,10 +368,10 @@ public class Evaluation {
      */
     public static int getKingToCornerScore(Board board, Color color) {
         if (GameState.getGameState(board) == GameState.END) {
-            King king = board.getKing(Color.invert(color));
-            if (king != null) {
-                int row = king.getRow();
-                int col = king.getCol();
+            int kingSquare = board.getKingSquare(Color.invert(color));
+            if (kingSquare != -1) {
+                int row = Bitboard.row(kingSquare);
+                int col = Bitboard.col(kingSquare);
                 if (row == 0 || row == 7 || col == 0 || col == 7) return KING_EDGE_END_GAME_SCORE;
             }
         }
@@ -380,9 +386,7 @@ public class Evaluation {
      * @return the evaluation for piece mobility
      */
     public static int getMobilityScore(Board board, Color color) {
-        List<Piece> pieces = board.getTeamPieces(color);
-        int mobility = pieces.stream().mapToInt(p -> p.getSudoLegalMoves(board).size()).sum();
-        return mobility * MOBILITY_SCORE_MULTIPLIER;
+        return AttackMap.get(board).getMobility(color) * MOBILITY_SCORE_MULTIPLIER;
     }
 
     /**
@@ -394,18 +398,11 @@ public class Evaluation {
      */
     public static int getRookOpenFileScore(Board board, Color color) {
         int score = 0;
-        List<Rook> rooks = board.getTeamPieces(color).stream().filter(p -> p instanceof Rook).map(p -> (Rook) p).toList();
-        for (Rook rook : rooks) {
-            int row = rook.getRow();
-            int col = rook.getCol();
-            boolean isOpenFile = true;
-            for (int i = 0; i < Board.ROWS; i++) {
-                if (board.getPieceAt(i, col) != null && i != row) {
-                    isOpenFile = false;
-                    break;
-                }
-            }
-            if (isOpenFile) score += ROOK_OPEN_FILE_SCORE;
+        long occupied = board.getOccupied();
+        for (int i = 0; i < board.getPieceCount(color); i++) {
+            int square = board.getPieceSquare(color, i);
+            boolean isOpenFile = (occupied & Bitboard.file(Bitboard.col(square)) & ~Bitboard.bit(square)) == 0;
+            if (board.getPieceIndex(square) % 6 == Bitboard.ROOK && isOpenFile) score += ROOK_OPEN_FILE_SCORE;
         }
 
 
@@ -422,9 +419,8 @@ public class Evaluation {
      * @return the evaluation for pawns
      */
     public static int getPawnScore(Board board, Color color) {
-        List<Pawn> pawns = board.getTeamPieces(color).stream().filter(p -> p instanceof Pawn).map(p -> (Pawn) p).toList();
         GameState state = GameState.getGameState(board);
-        return getPawnStructureScore(board, color, pawns) + getPassedPawnScore(board, color, pawns) + getDoubledPawnsScore(board, color, pawns) + getPawnPromotionScore(color, pawns, state);
+        return getPawnStructureScore(board, color) + getPassedPawnScore(board, color) + getDoubledPawnsScore(board, color) + getPawnPromotionScore(board, color, state);
     }
 
 
@@ -433,28 +429,29 @@ public class Evaluation {
      *
      * @param board The board to evaluate
      * @param color The team to evaluate
-     * @param pawns The list of pawns to evaluate
      * @return the evaluation for passed pawns
      */
 
-    public static int getPassedPawnScore(Board board, Color color, List<Pawn> pawns) {
+    public static int getPassedPawnScore(Board board, Color color) {
         int score = 0;
-        for (Pawn pawn : pawns) {
-            int row = pawn.getRow();
-            int col = pawn.getCol();
+        for (int i = 0; i < board.getPieceCount(color); i++) {
+            int square = board.getPieceSquare(color, i);
+            if (board.getPieceIndex(square) % 6 != Bitboard.PAWN) continue;
+            int row = Bitboard.row(square);
+            int col = Bitboard.col(square);
             boolean isPassed = true;
 
             if (color == Color.WHITE) {
-                for (int i = row - 1; i >= 0; i--) {
-                    if (board.getPieceAt(i, col) != null || (col > 0 && board.getPieceAt(i, col - 1) instanceof Pawn) || (col < 7 && board.getPieceAt(i, col + 1) instanceof Pawn)) {
+                for (int r = row - 1; r >= 0; r--) {
+                    if (board.getPieceAt(r, col) != null || (col > 0 && board.getPieceAt(r, col - 1) instanceof Pawn) || (col < 7 && board.getPieceAt(r, col + 1) instanceof Pawn)) {
                         isPassed = false;
                         break;
                     }
                 }
 
             } else {
-                for (int i = row + 1; i <= 7; i++) {
-                    if (board.getPieceAt(i, col) != null || (col > 0 && board.getPieceAt(i, col - 1) instanceof Pawn) || (col < 7 && board.getPieceAt(i, col + 1) instanceof Pawn)) {
+                for (int r = row + 1; r <= 7; r++) {
+                    if (board.getPieceAt(r, col) != null || (col > 0 && board.getPieceAt(r, col - 1) instanceof Pawn) || (col < 7 && board.getPieceAt(r, col + 1) instanceof Pawn)) {
                         isPassed = false;
                         break;
                     }
@@ -470,28 +467,29 @@ public class Evaluation {
      *
      * @param board The board to evaluate
      * @param color The team to evaluate
-     * @param pawns The list of pawns to evaluate
      * @return the evaluation for doubled pawns
      */
-    public static int getDoubledPawnsScore(Board board, Color color, List<Pawn> pawns) {
+    public static int getDoubledPawnsScore(Board board, Color color) {
         int score = 0;
 
-        for (Pawn pawn : pawns) {
-            int row = pawn.getRow();
-            int col = pawn.getCol();
+        for (int i = 0; i < board.getPieceCount(color); i++) {
+            int square = board.getPieceSquare(color, i);
+            if (board.getPieceIndex(square) % 6 != Bitboard.PAWN) continue;
+            int row = Bitboard.row(square);
+            int col = Bitboard.col(square);
             boolean isDoubled = false;
 
             if (color == Color.WHITE) {
-                for (int i = row - 1; i >= 0; i--) {
-                    Piece piece = board.getPieceAt(i, col);
+                for (int r = row - 1; r >= 0; r--) {
+                    Piece piece = board.getPieceAt(r, col);
                     if (piece instanceof Pawn && piece.getColor() == color) {
                         isDoubled = true;
                         break;
                     }
                 }
             } else {
-                for (int i = row + 1; i < Board.ROWS; i++) {
-                    Piece piece = board.getPieceAt(i, col);
+                for (int r = row + 1; r < Board.ROWS; r++) {
+                    Piece piece = board.getPieceAt(r, col);
                     if (piece instanceof Pawn && piece.getColor() == color) {
                         isDoubled = true;
                         break;
@@ -508,15 +506,16 @@ public class Evaluation {
      *
      * @param board The board to evaluate
      * @param color The team to evaluate
-     * @param pawns The list of pawns to evaluate
      * @return the evaluation for pawn structure
      */
-    public static int getPawnStructureScore(Board board, Color color, List<Pawn> pawns) {
+    public static int getPawnStructureScore(Board board, Color color) {
         int score = 0;
 
-        for (Pawn pawn : pawns) {
-            int row = pawn.getRow();
-            int col = pawn.getCol();
+        for (int i = 0; i < board.getPieceCount(color); i++) {
+            int square = board.getPieceSquare(color, i);
+            if (board.getPieceIndex(square) % 6 != Bitboard.PAWN) continue;
+            int row = Bitboard.row(square);
+            int col = Bitboard.col(square);
             int connectedPawns = 0;
 
             connectedPawns += countConnectedPawns(board, row, col, color);
@@ -529,19 +528,21 @@ public class Evaluation {
     /**
      * A helper method for getPawnScore
      *
+     * @param board The board to evaluate
      * @param color The team to evaluate
-     * @param pawns The list of pawns to evaluate
      * @param state The current game state
      * @return the evaluation for pawn promotion
      */
-    public static int getPawnPromotionScore(Color color, List<Pawn> pawns, GameState state) {
+    public static int getPawnPromotionScore(Board board, Color color, GameState state) {
         if (state != GameState.END) {
             return 0;
         }
 
         int score = 0;
-        for (Pawn pawn : pawns) {
-            int row = pawn.getRow();
+        for (int i = 0; i < board.getPieceCount(color); i++) {
+            int square = board.getPieceSquare(color, i);
+            if (board.getPieceIndex(square) % 6 != Bitboard.PAWN) continue;
+            int row = Bitboard.row(square);
             int distance = pawnPromotionDistance(row, color);
             score += (7 - distance) * BASE_PAWN_PROMOTION_SCORE;
         }
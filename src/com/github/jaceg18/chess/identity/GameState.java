@@ -8,7 +8,7 @@ public enum GameState {
     END;
 
     public static GameState getGameState(Board board) {
-        int pieceCount = board.getTeamPieces(Color.WHITE).size() + board.getTeamPieces(Color.BLACK).size();
+        int pieceCount = board.getPieceCount(Color.WHITE) + board.getPieceCount(Color.BLACK);
         if (pieceCount >= 29) return OPENING;
         else if (pieceCount > 10) return MIDDLE;
         else return END;
@@ -0,0 +1,74 @@
+package com.github.jaceg18.chess.identity;
+
+/**
+ * The six kinds of chess piece. The ordinal of each type is the piece type used by Bitboard (Bitboard.PAWN .. Bitboard.KING),
+ * so a piece index is ordinal + 6 for black, see getIndex.
+ */
+public enum PieceType {
+    PAWN("Pawn", 'P', 100),
+    KNIGHT("Knight", 'N', 350),
+    BISHOP("Bishop", 'B', 375),
+    ROOK("Rook", 'R', 550),
+    QUEEN("Queen", 'Q', 900),
+    KING("King", 'K', 0);
+
+    private static final PieceType[] TYPES = values();
+
+    private final String name;
+    private final char fen;
+    private final int value;
+
+    PieceType(String name, char fen, int value) {
+        this.name = name;
+        this.fen = fen;
+        this.value = value;
+    }
+
+    /**
+     * Gets the type of a piece index
+     *
+     * @param pieceIndex The piece index, 0 to 11
+     * @return The piece type
+     */
+    public static PieceType of(int pieceIndex) {
+        return TYPES[pieceIndex % 6];
+    }
+
+    /**
+     * Gets the piece index of this type for a team, as used by the board and zobrist hashing
+     *
+     * @param color The team
+     * @return The piece index, 0 to 5 for white and 6 to 11 for black
+     */
+    public int getIndex(Color color) {
+        return ordinal() + color.ordinal() * 6;
+    }
+
+    /**
+     * Gets the name of this type
+     *
+     * @return The name, such as "Pawn"
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the FEN letter of this type for a team
+     *
+     * @param color The team
+     * @return The letter, upper case for white and lower case for black
+     */
+    public char getFen(Color color) {
+        return color == Color.WHITE ? fen : Character.toLowerCase(fen);
+    }
+
+    /**
+     * Gets the material value of this type
+     *
+     * @return The value in centipawns
+     */
+    public int getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,198 @@
+package com.github.jaceg18.chess.perft;
+
+import com.github.jaceg18.chess.Board;
+import com.github.jaceg18.chess.PackedMove;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the leaf nodes of the legal move tree to verify move generation and measure its speed.
+ * The last ply is bulk counted, and subtree counts can be shared through an optional {@link PerftTable}.
+ */
+public class Perft {
+    // Depths from 1 up to but not including this one fit the move buffers
+    public static final int MAX_DEPTH = 64;
+    private static final int DEFAULT_HASH_MB = 64;
+
+    private final int[][] moves = new int[MAX_DEPTH][Board.MAX_MOVES];
+    private final PerftTable table;
+
+    /**
+     * Creates a perft counter
+     *
+     * @param table The table to share subtree counts through, null to count every subtree
+     */
+    public Perft(PerftTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Counts the leaf nodes below a position
+     *
+     * @param board The board to count on, left unchanged afterwards
+     * @param depth The depth to count to
+     * @return The number of leaf nodes
+     */
+    public long perft(Board board, int depth) {
+        if (depth == 0) return 1;
+
+        int[] buffer = moves[depth];
+        int count = board.generateLegalMoves(buffer);
+        if (depth == 1) return count;
+
+        long key = board.zobristHashCode();
+        if (table != null) {
+            long stored = table.probe(key, depth);
+            if (stored >= 0) return stored;
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            board.makeMove(buffer[i]);
+            nodes += perft(board, depth - 1);
+            board.undoMove(buffer[i]);
+        }
+
+        if (table != null) table.store(key, depth, nodes);
+        return nodes;
+    }
+
+    /**
+     * Counts the leaf nodes below every root move and prints them
+     *
+     * @param board The board to count on, left unchanged afterwards
+     * @param depth The depth to count to, at least 1
+     * @param table The table to share subtree counts through, null for none
+     * @param out   Where to print the count of each root move
+     * @return The total number of leaf nodes
+     */
+    public static long divide(Board board, int depth, PerftTable table, PrintStream out) {
+        Perft perft = new Perft(table);
+        int[] rootMoves = new int[Board.MAX_MOVES];
+        int count = board.generateLegalMoves(rootMoves);
+
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            board.makeMove(rootMoves[i]);
+            long moveNodes = perft.perft(board, depth - 1);
+            board.undoMove(rootMoves[i]);
+
+            out.println(PackedMove.toCoordinate(rootMoves[i]) + ": " + moveNodes);
+            nodes += moveNodes;
+        }
+        return nodes;
+    }
+
+    /**
+     * Counts the leaf nodes below a position, splitting the root moves across a fork join pool
+     *
+     * @param board The board to count on, left unchanged afterwards
+     * @param depth The depth to count to
+     * @param table The table to share subtree counts through, null for none
+     * @param pool  The pool to run the root moves on
+     * @return The number of leaf nodes
+     */
+    public static long parallel(Board board, int depth, PerftTable table, ForkJoinPool pool) {
+        if (depth <= 1) return new Perft(table).perft(board, depth);
+        return pool.invoke(new RootTask(board, depth, table));
+    }
+
+    /**
+     * Prints the node count, time taken and nodes per second of a run
+     *
+     * @param nodes The number of nodes counted
+     * @param nanos The time taken in nanoseconds
+     * @param out   Where to print the report
+     */
+    public static void report(long nodes, long nanos, PrintStream out) {
+        long millis = Math.max(1, nanos / 1_000_000);
+        out.println("Nodes: " + nodes + " Time: " + millis + "ms NPS: " + (nodes * 1000 / millis));
+    }
+
+    /**
+     * Splits the root moves into one subtask each, every subtask counting on its own copy of the board
+     */
+    private static class RootTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final Board board;
+        private final int depth;
+        private final PerftTable table;
+
+        RootTask(Board board, int depth, PerftTable table) {
+            this.board = board;
+            this.depth = depth;
+            this.table = table;
+        }
+
+        @Override
+        protected Long compute() {
+            int[] rootMoves = new int[Board.MAX_MOVES];
+            int count = board.generateLegalMoves(rootMoves);
+
+            List<RecursiveTask<Long>> tasks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int move = rootMoves[i];
+                Board copy = board.getCopy();
+                tasks.add(new RecursiveTask<>() {
+                    @Override
+                    protected Long compute() {
+                        copy.makeMove(move);
+                        return new Perft(table).perft(copy, depth - 1);
+                    }
+                });
+            }
+            invokeAll(tasks);
+
+            long nodes = 0;
+            for (RecursiveTask<Long> task : tasks) nodes += task.join();
+            return nodes;
+        }
+    }
+
+    /**
+     * Runs perft on the starting position
+     * Usage: Perft depth [divide] [parallel] [hash=megabytes]
+     *
+     * @param args The depth followed by any options
+     */
+    public static void main(String[] args) {
+        int depth;
+        boolean divide = false;
+        boolean parallel = false;
+        int hashMb = 0;
+        try {
+            depth = Integer.parseInt(args[0]);
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].equals("divide")) divide = true;
+                else if (args[i].equals("parallel")) parallel = true;
+                else if (args[i].startsWith("hash")) {
+                    int index = args[i].indexOf('=');
+                    hashMb = index < 0 ? DEFAULT_HASH_MB : Integer.parseInt(args[i].substring(index + 1));
+                    if (hashMb < 1) throw new NumberFormatException("hash size must be positive");
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.out.println("Usage: Perft depth [divide] [parallel] [hash=megabytes]");
+            return;
+        }
+        if (depth < 1 || depth >= MAX_DEPTH) {
+            System.out.println("Usage: Perft depth [divide] [parallel] [hash=megabytes], depth from 1 to " + (MAX_DEPTH - 1));
+            return;
+        }
+
+        PerftTable table = hashMb > 0 ? new PerftTable(hashMb) : null;
+
+        Board board = new Board();
+        long start = System.nanoTime();
+        long nodes;
+        if (divide) nodes = divide(board, depth, table, System.out);
+        else if (parallel) nodes = parallel(board, depth, table, ForkJoinPool.commonPool());
+        else nodes = new Perft(table).perft(board, depth);
+        report(nodes, System.nanoTime() - start, System.out);
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.jaceg18.chess.perft;
+
+/**
+ * A fixed size hash table of perft subtree counts keyed by the zobrist key and depth.
+ * Entries are stored as a key/data pair with the key XORed against the data, so a torn
+ * write from another thread is detected as a miss instead of returning a wrong count.
+ */
+public class PerftTable {
+    private static final int ENTRY_BYTES = 16;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+
+    /**
+     * Creates a perft table
+     *
+     * @param megabytes The size of the table, rounded down to a power of two entries
+     */
+    public PerftTable(int megabytes) {
+        long entries = Math.max(1L, (long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+        int size = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+        this.keys = new long[size];
+        this.data = new long[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Looks up the node count of a position
+     *
+     * @param key   The zobrist key of the position
+     * @param depth The remaining depth
+     * @return The stored node count, -1 if there is none
+     */
+    public long probe(long key, int depth) {
+        int index = (int) key & mask;
+        long entry = data[index];
+        if ((keys[index] ^ entry) != key || (entry & 0xFF) != depth) return -1;
+        return entry >>> 8;
+    }
+
+    /**
+     * Stores the node count of a position, replacing whatever was in its slot
+     *
+     * @param key   The zobrist key of the position
+     * @param depth The remaining depth
+     * @param nodes The node count below the position
+     */
+    public void store(long key, int depth, long nodes) {
+        int index = (int) key & mask;
+        long entry = (nodes << 8) | depth;
+        data[index] = entry;
+        keys[index] = key ^ entry;
+    }
+}
@@ -4,6 +4,7 @@ import com.github.jaceg18.chess.Board;
 import com.github.jaceg18.chess.Move;
 import com.github.jaceg18.chess.Utility;
 import com.github.jaceg18.chess.identity.Color;
+import com.github.jaceg18.chess.identity.PieceType;
 
 
 import java.util.ArrayList;
@@ -12,11 +13,8 @@ import java.util.List;
 @SuppressWarnings("all")
 public class King extends Piece {
 
-    private boolean hasCastled;
     public King(Color color, int row, int col) {
-        super(color, row, col);
-
-        this.hasCastled = false;
+        super(color, PieceType.KING, row, col);
     }
 
     /**
@@ -45,17 +43,12 @@ public class King extends Piece {
         return moveSet;
     }
     /**
-     * Creates a deep copy of the piece
-     * @return A deep copy of the piece
+     * Creates a copy of the piece
+     * @return A copy of the piece
      */
     @Override
     public Piece copy() {
-        King king = new King(getColor(), getRow(), getCol());
-        king.setMoved(hasMoved());
-        king.setHasCastled(hasCastled());
-        king.setCaptured(isCaptured());
-        king.setValue(getValue());
-        return king;
+        return new King(getColor(), getRow(), getCol());
     }
 
     /**
@@ -64,11 +57,13 @@ public class King extends Piece {
      * @param legalMoves The pre-existing sudo legal moves list to add-on to
      */
     private void addCastleMoves(Board board, List<Move> legalMoves){
-        if (!hasMoved() && !hasCastled && getCol() == 4){
+        int rights = board.getCastlingRights();
+        int kingSide = getColor() == Color.WHITE ? Board.WHITE_KING_SIDE : Board.BLACK_KING_SIDE;
+        int queenSide = getColor() == Color.WHITE ? Board.WHITE_QUEEN_SIDE : Board.BLACK_QUEEN_SIDE;
+        if ((rights & (kingSide | queenSide)) != 0){
             int row = getRow();
             int col = getCol();
-            Piece kingSideRook = board.getPieceAt(row, 7);
-            if (kingSideRook instanceof Rook && !kingSideRook.hasMoved()){
+            if ((rights & kingSide) != 0){
                 boolean isPathClear = true;
                 for (int i=col+1; i<7; i++)
                     if (board.getPieceAt(row, i) != null){
@@ -79,8 +74,7 @@ public class King extends Piece {
                     legalMoves.add(new Move(row, col, row, col+2, this));
                 }
             }
-            Piece queenSideRook = board.getPieceAt(row, 0);
-            if (queenSideRook instanceof Rook && !queenSideRook.hasMoved()){
+            if ((rights & queenSide) != 0){
                 boolean isPathClear = true;
                 for (int i=col-1; i>0; i--)
                     if (board.getPieceAt(row, i) != null){
@@ -93,20 +87,4 @@ public class King extends Piece {
             }
         }
     }
-
-    /**
-     * A method to set is a king has castled
-     * @param hasCastled The boolean value to set hasCastled
-     */
-    public void setHasCastled(boolean hasCastled){
-        this.hasCastled = hasCastled;
-    }
-
-    /**
-     * Checks if a king has castled already
-     * @return The boolean value of hasCastled
-     */
-    public boolean hasCastled(){
-        return hasCastled;
-    }
 }
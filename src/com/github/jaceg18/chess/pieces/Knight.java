@@ -3,6 +3,7 @@ package com.github.jaceg18.chess.pieces;
 import com.github.jaceg18.chess.Board;
 import com.github.jaceg18.chess.Move;
 import com.github.jaceg18.chess.identity.Color;
+import com.github.jaceg18.chess.identity.PieceType;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -11,7 +12,7 @@ public class Knight extends Piece {
 
     private final int[][] offsets = {{-1,-2}, {-2,-1}, {-2,1}, {-1,2}, {1,-2}, {2,-1}, {2,1}, {1,2}};
     public Knight(Color color, int row, int col) {
-        super(color, row, col);
+        super(color, PieceType.KNIGHT, row, col);
     }
 
     /**
@@ -38,15 +39,11 @@ public class Knight extends Piece {
         return moveSet;
     }
     /**
-     * Creates a deep copy of the piece
-     * @return A deep copy of the piece
+     * Creates a copy of the piece
+     * @return A copy of the piece
      */
     @Override
     public Piece copy() {
-        Knight knight = new Knight(getColor(), getRow(), getCol());
-        knight.setMoved(hasMoved());
-        knight.setCaptured(isCaptured());
-        knight.setValue(getValue());
-        return knight;
+        return new Knight(getColor(), getRow(), getCol());
     }
 }
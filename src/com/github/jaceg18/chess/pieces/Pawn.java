@@ -1,9 +1,11 @@
 package com.github.jaceg18.chess.pieces;
 
+import com.github.jaceg18.chess.Bitboard;
 import com.github.jaceg18.chess.Board;
 import com.github.jaceg18.chess.Move;
 import com.github.jaceg18.chess.Utility;
 import com.github.jaceg18.chess.identity.Color;
+import com.github.jaceg18.chess.identity.PieceType;
 
 
 import java.util.ArrayList;
@@ -11,27 +13,8 @@ import java.util.List;
 @SuppressWarnings("unused")
 public class Pawn extends Piece {
 
-    private boolean enPassantAvailable;
     public Pawn(Color color, int row, int col) {
-        super(color, row, col);
-
-        this.enPassantAvailable = false;
-    }
-
-    /**
-     * A method that checks if a pawn can be en passant
-     * @return If a pawn can be en passant
-     */
-    public boolean isEnPassantAvailable() {
-        return enPassantAvailable;
-    }
-
-    /**
-     * A method that sets a pawn's permission to be en passant
-     * @param enPassantAvailable The value to give the en passant boolean
-     */
-    public void setEnPassantAvailable(boolean enPassantAvailable) {
-        this.enPassantAvailable = enPassantAvailable;
+        super(color, PieceType.PAWN, row, col);
     }
 
     /**
@@ -77,18 +60,12 @@ public class Pawn extends Piece {
         return moveSet;
     }
     /**
-     * Creates a deep copy of the piece
-     * @return A deep copy of the piece
+     * Creates a copy of the piece
+     * @return A copy of the piece
      */
     @Override
     public Piece copy() {
-        Pawn pawn = new Pawn(getColor(), getRow(), getCol());
-        pawn.setMoved(hasMoved());
-        pawn.setCaptured(isCaptured());
-        pawn.setValue(getValue());
-        pawn.setEnPassantAvailable(isEnPassantAvailable());
-
-        return pawn;
+        return new Pawn(getColor(), getRow(), getCol());
     }
 
     /**
@@ -100,17 +77,11 @@ public class Pawn extends Piece {
      * @param direction The direction of the pawn
      */
     private void addEnPassantMoves(List<Move> moveSet, Board board, int row, int col, int direction) {
-        Piece leftPiece = col > 0 ? board.getPieceAt(row, col - 1) : null;
-        Piece rightPiece = col < 7 ? board.getPieceAt(row, col + 1) : null;
+        int enPassantSquare = board.getEnPassantSquare();
+        if (enPassantSquare == -1 || Bitboard.row(enPassantSquare) != row + direction) return;
 
-        if (leftPiece instanceof Pawn && leftPiece.getColor() != getColor() && ((Pawn) leftPiece).isEnPassantAvailable()) {
-            Move enPassantMove = new Move(row, col, row + direction, col - 1, this);
-            moveSet.add(enPassantMove);
-        }
-
-        if (rightPiece instanceof Pawn && rightPiece.getColor() != getColor() && ((Pawn) rightPiece).isEnPassantAvailable()) {
-            Move enPassantMove = new Move(row, col, row + direction, col + 1, this);
-            moveSet.add(enPassantMove);
-        }
+        int enPassantCol = Bitboard.col(enPassantSquare);
+        if (Math.abs(enPassantCol - col) == 1)
+            moveSet.add(new Move(row, col, row + direction, enPassantCol, this));
     }
 }
@@ -1,38 +1,44 @@
 package com.github.jaceg18.chess.pieces;
 
+import com.github.jaceg18.chess.Bitboard;
 import com.github.jaceg18.chess.Board;
 import com.github.jaceg18.chess.Move;
-import com.github.jaceg18.chess.Utility;
 import com.github.jaceg18.chess.identity.Color;
+import com.github.jaceg18.chess.identity.PieceType;
 
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * An abstract class representing a chess piece on the board.
+ * Pieces are immutable, the board keeps all position state, so one instance can be shared by any number of boards.
  */
 @SuppressWarnings("unused")
 public abstract class Piece  {
     private final Color color;
-    private int row;
-    private int col;
-    private int value;
-    private boolean hasMoved;
-    private boolean isCaptured;
+    private final PieceType type;
+    private final int index;
+    private final int row;
+    private final int col;
+    private final int value;
 
     /**
-     * Constructs a new Piece object with the given color, row, and column.
+     * Constructs a new Piece object with the given color, type, row, and column.
      *
      * @param color the color of the piece
+     * @param type the type of the piece
      * @param row the row of the piece on the board
      * @param col the column of the piece on the board
      */
-    public Piece(Color color, int row, int col) {
+    protected Piece(Color color, PieceType type, int row, int col) {
         this.color = color;
+        this.type = type;
+        this.index = type.getIndex(color);
         this.row = row;
         this.col = col;
 
-        this.value = Utility.getValueByPiece(this);
+        this.value = type.getValue();
     }
     /**
      * Returns the row of the piece on the board.
@@ -59,20 +65,20 @@ public abstract class Piece  {
         return value;
     }
     /**
-     * Returns whether the piece has moved.
+     * Returns the type of the piece.
      *
-     * @return true if the piece has moved, false otherwise
+     * @return the type of the piece
      */
-    public boolean hasMoved(){
-        return hasMoved;
+    public PieceType getType(){
+        return type;
     }
     /**
-     * Returns whether the piece has been captured.
+     * Returns the piece index used by the board and zobrist hashing (see PieceType#getIndex).
      *
-     * @return true if the piece has been captured, false otherwise
+     * @return the piece index
      */
-    public boolean isCaptured(){
-        return isCaptured;
+    public int getIndex(){
+        return index;
     }
     /**
      * Returns the color of the piece.
@@ -82,40 +88,6 @@ public abstract class Piece  {
     public Color getColor(){
         return color;
     }
-    /**
-     * Sets the row and column of the piece on the board.
-     *
-     * @param row the new row of the piece
-     * @param col the new column of the piece
-     */
-    public void setPosition(int row, int col){
-        this.row = row;
-        this.col = col;
-    }
-    /**
-     * Sets whether the piece has been captured.
-     *
-     * @param isCaptured true if the piece has been captured, false otherwise
-     */
-    public void setCaptured(boolean isCaptured){
-        this.isCaptured = isCaptured;
-    }
-    /**
-     * Sets whether the piece has moved.
-     *
-     * @param hasMoved true if the piece has moved, false otherwise
-     */
-    public void setMoved(boolean hasMoved){
-        this.hasMoved = hasMoved;
-    }
-    /**
-     * Sets the value of the piece.
-     *
-     * @param value the value of the piece
-     */
-    public void setValue(int value){
-        this.value = value;
-    }
     /**
      * Returns a list of sudo-legal moves for the piece.
      *
@@ -124,8 +96,26 @@ public abstract class Piece  {
     public abstract List<Move> getSudoLegalMoves(Board board);
 
     /**
-     * Creates a deep copy of the piece
-     * @return returns a deep copy of the piece
+     * Turns an attack bitboard into moves for the piece, skipping squares held by its own team
+     *
+     * @param board   The board the piece is on
+     * @param attacks The squares the piece attacks
+     * @return a list of sudo-legal moves to the attacked squares
+     */
+    protected List<Move> getMovesFromAttacks(Board board, long attacks) {
+        long targets = attacks & ~board.getOccupancy(color);
+        List<Move> moveSet = new ArrayList<>(Long.bitCount(targets));
+        while (targets != 0) {
+            int square = Bitboard.lsb(targets);
+            moveSet.add(new Move(row, col, Bitboard.row(square), Bitboard.col(square), this));
+            targets &= targets - 1;
+        }
+        return moveSet;
+    }
+
+    /**
+     * Creates a copy of the piece
+     * @return returns a copy of the piece
      */
     public abstract Piece copy();
 
@@ -139,8 +129,6 @@ public abstract class Piece  {
         int result = 1;
         result = prime * result + col;
         result = prime * result + ((color == null) ? 0 : color.hashCode());
-        result = prime * result + (hasMoved ? 1231 : 1237);
-        result = prime * result + (isCaptured ? 1231 : 1237);
         result = prime * result + row;
         result = prime * result + value;
         return result;
@@ -165,13 +153,7 @@ public abstract class Piece  {
      */
     @Override
     public String toString(){
-        if (this instanceof Pawn) return (this.getColor() == Color.WHITE) ? "P" : "p";
-        if (this instanceof Knight) return (this.getColor() == Color.WHITE) ? "N" : "n";
-        if (this instanceof Bishop) return (this.getColor() == Color.WHITE) ? "B" : "b";
-        if (this instanceof Rook) return (this.getColor() == Color.WHITE) ? "R" : "r";
-        if (this instanceof Queen) return (this.getColor() == Color.WHITE) ? "Q" : "q";
-        if (this instanceof King) return (this.getColor() == Color.WHITE) ? "K" : "k";
-        return ""; // Return empty string if not a recognized chess piece
+        return String.valueOf(type.getFen(color));
     }
 
 }
@@ -1,16 +1,17 @@
 package com.github.jaceg18.chess.pieces;
 
+import com.github.jaceg18.chess.Bitboard;
 import com.github.jaceg18.chess.Board;
 import com.github.jaceg18.chess.Move;
 import com.github.jaceg18.chess.identity.Color;
+import com.github.jaceg18.chess.identity.PieceType;
 
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class Queen extends Piece {
     public Queen(Color color, int row, int col) {
-        super(color, row, col);
+        super(color, PieceType.QUEEN, row, col);
     }
 
     /**
@@ -20,60 +21,16 @@ public class Queen extends Piece {
      */
     @Override
     public List<Move> getSudoLegalMoves(Board board) {
-        List<Move> moveSet = new ArrayList<>();
-
-        // Check for moves in all directions
-        moveSet.addAll(getMovesInDirection(board, -1, 0)); // up
-        moveSet.addAll(getMovesInDirection(board, 1, 0)); // dowm
-        moveSet.addAll(getMovesInDirection(board, 0, -1)); // left
-        moveSet.addAll(getMovesInDirection(board, 0, 1)); // right
-        moveSet.addAll(getMovesInDirection(board, -1, -1)); // up left
-        moveSet.addAll(getMovesInDirection(board, -1, 1)); // up right
-        moveSet.addAll(getMovesInDirection(board, 1, -1)); // down left
-        moveSet.addAll(getMovesInDirection(board, 1, 1)); // down right
-
-        return moveSet;
+        int square = Bitboard.square(getRow(), getCol());
+        return getMovesFromAttacks(board, Bitboard.queenAttacks(square, board.getOccupied()));
     }
     /**
-     * Creates a deep copy of the piece
-     * @return A deep copy of the piece
+     * Creates a copy of the piece
+     * @return A copy of the piece
      */
     @Override
     public Piece copy() {
-        Queen queen = new Queen(getColor(), getRow(), getCol());
-        queen.setMoved(hasMoved());
-        queen.setCaptured(isCaptured());
-        queen.setValue(getValue());
-
-        return queen;
+        return new Queen(getColor(), getRow(), getCol());
     }
 
-    /**
-     * A helper method to get all sudo legal moves in a given direction
-     * @param board The board to check for moves
-     * @param rowIncrement The row's increment
-     * @param colIncrement The col's increment
-     * @return A list of all sudo legal queen moves in a given direction
-     */
-    private List<Move> getMovesInDirection(Board board, int rowIncrement, int colIncrement){
-        List<Move> moveSet = new ArrayList<>();
-        int row = getRow();
-        int col = getCol();
-        int newRow = row + rowIncrement;
-        int newCol = col + colIncrement;
-        while (newRow >= 0 && newRow < 8 && newCol >= 0 && newCol < 8){
-            Piece destPiece = board.getPieceAt(newRow, newCol);
-            if (destPiece == null)
-                moveSet.add(new Move(row, col, newRow, newCol, this));
-            else {
-                if (destPiece.getColor() != getColor())
-                    moveSet.add(new Move(row, col, newRow, newCol, this));
-                break;
-            }
-            newRow += rowIncrement;
-            newCol += colIncrement;
-
-        }
-        return moveSet;
-    }
 }
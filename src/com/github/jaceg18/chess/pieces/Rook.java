@@ -1,16 +1,17 @@
 package com.github.jaceg18.chess.pieces;
 
+import com.github.jaceg18.chess.Bitboard;
 import com.github.jaceg18.chess.Board;
 import com.github.jaceg18.chess.Move;
 import com.github.jaceg18.chess.identity.Color;
+import com.github.jaceg18.chess.identity.PieceType;
 
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class Rook extends Piece {
     public Rook(Color color, int row, int col) {
-        super(color, row, col);
+        super(color, PieceType.ROOK, row, col);
     }
 
     /**
@@ -20,66 +21,16 @@ public class Rook extends Piece {
      */
     @Override
     public List<Move> getSudoLegalMoves(Board board) {
-        List<Move> moveSet = new ArrayList<>();
-        int row = getRow();
-        int col = getCol();
-        // Move up
-        for (int r=row-1; r>=0; r--){
-            Piece destPiece = board.getPieceAt(r, col);
-            if (destPiece == null)
-                moveSet.add(new Move(row, col, r, col, this));
-            else {
-                if (destPiece.getColor() != getColor())
-                    moveSet.add(new Move(row, col, r, col, this));
-                break;
-            }
-        }
-        // Move down
-        for (int r=row+1; r<8; r++){
-            Piece destPiece = board.getPieceAt(r, col);
-            if (destPiece == null)
-                moveSet.add(new Move(row, col, r, col, this));
-            else {
-                if (destPiece.getColor() != getColor())
-                    moveSet.add(new Move(row, col, r, col, this));
-                break;
-            }
-        }
-        // Move left
-        for (int c=col-1; c>=0; c--){
-            Piece destPiece = board.getPieceAt(row, c);
-            if (destPiece == null)
-                moveSet.add(new Move(row, col, row, c, this));
-            else {
-                if (destPiece.getColor() != getColor())
-                    moveSet.add(new Move(row, col, row, c, this));
-                break;
-            }
-        }
-        // Move right
-        for (int c=col+1; c<8; c++){
-            Piece destPiece = board.getPieceAt(row, c);
-            if (destPiece == null)
-                moveSet.add(new Move(row, col, row, c, this));
-            else {
-                if (destPiece.getColor() != getColor())
-                    moveSet.add(new Move(row, col, row, c, this));
-                break;
-            }
-        }
-        return moveSet;
+        int square = Bitboard.square(getRow(), getCol());
+        return getMovesFromAttacks(board, Bitboard.rookAttacks(square, board.getOccupied()));
     }
 
     /**
-     * Creates a deep copy of the piece
-     * @return A deep copy of the piece
+     * Creates a copy of the piece
+     * @return A copy of the piece
      */
     @Override
     public Rook copy() {
-        Rook rook = new Rook(getColor(), getRow(), getCol());
-        rook.setMoved(hasMoved());
-        rook.setCaptured(isCaptured());
-        rook.setValue(getValue());
-        return rook;
+        return new Rook(getColor(), getRow(), getCol());
     }
 }
@@ -3,11 +3,16 @@ package com.github.jaceg18.chess.ui;
 import com.github.jaceg18.chess.Board;
 import com.github.jaceg18.chess.evaluation.Evaluation;
 import com.github.jaceg18.chess.identity.Color;
+import com.github.jaceg18.chess.perft.Perft;
+import com.github.jaceg18.chess.perft.PerftTable;
 
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
 @SuppressWarnings("all")
 public class Console extends Thread {
 
+    private static final int PERFT_HASH_MB = 64;
+
     GUI gui;
 
     /**
@@ -28,7 +33,8 @@ public class Console extends Thread {
         Scanner scanner = new Scanner(System.in);
 
         while (true) {
-            String input = scanner.nextLine().toLowerCase();
+            String line = scanner.nextLine().trim();
+            String input = line.toLowerCase();
 
             if (input.equals("evaluate") || input.equals("eval")) {
                 Board board = gui.getBoard();
@@ -42,7 +48,59 @@ public class Console extends Thread {
             if (input.equals("restart") || input.equals("new") || input.equals("reset")){
                 gui.resetGame();
             }
+            if (input.startsWith("perft ") || input.startsWith("divide ")) {
+                runPerft(input);
+            }
+            if (input.startsWith("load ")) {
+                // FEN is case sensitive, so use the line as typed
+                loadPosition(line.substring("load ".length()).trim().replaceAll("\\s+", " "));
+            }
+            if (input.equals("fen")) {
+                System.out.println(gui.getBoard().toFen());
+            }
+        }
+    }
+
+    /**
+     * Loads a position into the game
+     *
+     * @param fen The position in FEN format
+     */
+    private void loadPosition(String fen) {
+        try {
+            gui.loadPosition(Board.fromFen(fen));
+            System.out.println("Loaded " + fen);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
         }
     }
 
+    /**
+     * Runs perft or divide on a copy of the current board
+     *
+     * @param input The command, perft or divide followed by the depth
+     */
+    private void runPerft(String input) {
+        String[] args = input.trim().split("\\s+");
+        int depth;
+        try {
+            depth = Integer.parseInt(args[1]);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.out.println("Usage: perft <depth> or divide <depth>");
+            return;
+        }
+        if (depth < 1 || depth >= Perft.MAX_DEPTH) {
+            System.out.println("Usage: perft <depth> or divide <depth>, depth from 1 to " + (Perft.MAX_DEPTH - 1));
+            return;
+        }
+
+        Board board = gui.getBoard().getCopy();
+        PerftTable table = new PerftTable(PERFT_HASH_MB);
+        long start = System.nanoTime();
+        long nodes = args[0].equals("divide")
+                ? Perft.divide(board, depth, table, System.out)
+                : Perft.parallel(board, depth, table, ForkJoinPool.commonPool());
+        Perft.report(nodes, System.nanoTime() - start, System.out);
+    }
+
 }
@@ -18,7 +18,6 @@ public class Controller implements MouseMotionListener, MouseListener {
     private int selectedRow = -1;
     private int selectedCol = -1;
     private Piece selectedPiece;
-    private Color turnToMove = Color.WHITE;
     private Board board;
     private int[] selector;
     Color playerTeam;
@@ -57,16 +56,10 @@ public class Controller implements MouseMotionListener, MouseListener {
         return selectedPiece;
     }
     /**
-     * Returns the Color of the player whose turn it is to move.
+     * Returns the Color of the player whose turn it is to move, as recorded by the board.
      */
     public Color getTurnToMove(){
-        return turnToMove;
-    }
-    /**
-     * Switches the turn to move to the other player.
-     */
-    public void switchTurns(){
-        this.turnToMove = Color.invert(turnToMove);
+        return board.getSideToMove();
     }
 
     /**
@@ -96,7 +89,7 @@ public class Controller implements MouseMotionListener, MouseListener {
     @Override
     public void mousePressed(MouseEvent e) {
         selectedPiece = null;
-        if (turnToMove == playerTeam) {
+        if (getTurnToMove() == playerTeam) {
             int row = e.getY() / GUI.SQUARE_SIZE;
             int col = e.getX() / GUI.SQUARE_SIZE;
 
@@ -126,7 +119,7 @@ public class Controller implements MouseMotionListener, MouseListener {
 
     @Override
     public void mouseReleased(MouseEvent e) {
-        if (turnToMove == playerTeam) {
+        if (getTurnToMove() == playerTeam) {
             if (selectedPiece != null) {
                 int row = e.getY() / GUI.SQUARE_SIZE;
                 int col = e.getX() / GUI.SQUARE_SIZE;
@@ -140,7 +133,6 @@ public class Controller implements MouseMotionListener, MouseListener {
                         board.makeMove(move, Flag.NORMAL);
                         Evaluation.evaluate(board, Color.WHITE);
                         AudioPlayer.playSound((move.getMoveType() == MoveType.CAPTURE));
-                        switchTurns();
                     }
 
                 selectedPiece = null;
@@ -36,7 +36,8 @@ public class GUI extends JPanel implements ActionListener {
     private Color playerTeam;
     public boolean AI_THINKING = false;
     public static String gameNotation;
-    private int depth = 4;
+    // Time the AI may take per move in milliseconds
+    private final long moveTime = 2000;
 
     /**
      * Constructor for JPanel
@@ -47,8 +48,8 @@ public class GUI extends JPanel implements ActionListener {
         this.playerTeam = playerTeam;
         this.controller = new Controller(board, playerTeam);
         this.timer = new Timer(TICK_SPEED, this);
-        this.ai = new AI(Color.invert(playerTeam), depth);
-        this.ai2 = new AI(playerTeam, depth);
+        this.ai = createAI(Color.invert(playerTeam));
+        this.ai2 = createAI(playerTeam);
         gameNotation = "";
 
         flip = playerTeam == Color.BLACK;
@@ -114,12 +115,40 @@ public class GUI extends JPanel implements ActionListener {
     public void resetGame(){
         board = new Board();
         controller = new Controller(board, playerTeam);
-        ai = new AI(Color.invert(playerTeam), depth);
-        ai2 = new AI(playerTeam, depth);
+        // The old AIs' helper threads would otherwise outlive them
+        ai.shutdown();
+        ai2.shutdown();
+        ai = createAI(Color.invert(playerTeam));
+        ai2 = createAI(playerTeam);
         AI_THINKING = false;
 
     }
 
+    /**
+     * Creates an AI that searches as deep as it can within the move time
+     * @param team The team of the AI
+     * @return The AI
+     */
+    private AI createAI(Color team){
+        AI ai = new AI(team, AI.MAX_DEPTH);
+        ai.setMoveTime(moveTime);
+        return ai;
+    }
+
+    /**
+     * Starts a new game from a loaded position, the team to move is taken from the board.
+     * The opening book is only used when the position is the start position
+     * @param board The board to play from
+     */
+    public void loadPosition(Board board){
+        resetGame();
+        gameNotation = "";
+        boolean fromStart = board.toFen().equals(Board.START_FEN);
+        ai.setOpeningBookEnabled(fromStart);
+        ai2.setOpeningBookEnabled(fromStart);
+        setBoard(board);
+    }
+
     /**
      * Returns the mouse listener
      * @return the mouse listener
@@ -7,7 +7,6 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.Arrays;
 @SuppressWarnings("all")
 public class Graphic {
     private static final String SPRITE_PATH = "resources/chess.png";
@@ -16,6 +15,8 @@ public class Graphic {
     private static final int SPRITE_WIDTH = 1200;
     private static final int ADJUSTED_SPRITE_SIZE = 64;
     private static final int DEFAULT_SPRITE_SIZE = 200;
+    // Sprite sheet position of each piece index, the sheet is ordered K Q B N R P then the same in black
+    private static final int[] SPRITE_INDEX = {5, 3, 2, 4, 1, 0, 11, 9, 8, 10, 7, 6};
 
     /**
      * The creation of the PIECE_ICONS array and loading of sprites
@@ -43,16 +44,7 @@ public class Graphic {
      * @return The icon for the piece
      */
     public static Image getSprite(Piece piece){
-        String fen = piece.toString();
-        String[] pieceIcons = {"K", "Q", "B", "N", "R", "P", "k", "q", "b", "n", "r", "p"};
-
-        int index = Arrays.asList(pieceIcons).indexOf(fen);
-        if (index == -1) {
-            return null; // Return null if the piece is not recognized
-        }
-
-        return PIECE_ICONS[index];
-
+        return PIECE_ICONS[SPRITE_INDEX[piece.getIndex()]];
     }
 
 }
@@ -0,0 +1,99 @@
+package com.github.jaceg18.chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BoardFenTest {
+
+    @Test
+    void readsBackTheStartPosition() {
+        assertEquals(Board.START_FEN, Board.fromFen(Board.START_FEN).toFen());
+    }
+
+    @Test
+    void acceptsEnPassantSquareOfTheSideToMove() {
+        String white = "rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2";
+        String black = "rnbqkbnr/pppp1ppp/8/8/3Pp3/8/PPP1PPPP/RNBQKBNR b KQkq d3 0 2";
+        assertEquals(white, Board.fromFen(white).toFen());
+        assertEquals(black, Board.fromFen(black).toFen());
+    }
+
+    @Test
+    void rejectsTooFewRanks() {
+        assertRejected("rnbqkbnr/pppppppp/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+    }
+
+    @Test
+    void rejectsTooManyRanks() {
+        assertRejected("rnbqkbnr/pppppppp/8/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+    }
+
+    @Test
+    void rejectsRankWithTooFewFiles() {
+        assertRejected("rnbqkbnr/pppppppp/7/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+    }
+
+    @Test
+    void rejectsRankWithTooManyFiles() {
+        assertRejected("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNRR w KQkq - 0 1");
+        assertRejected("rnbqkbnr/pppppppp/8/8/81/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+    }
+
+    @Test
+    void rejectsMissingKing() {
+        assertRejected("rnbq1bnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQ - 0 1");
+        assertRejected("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQ1BNR w kq - 0 1");
+    }
+
+    @Test
+    void rejectsSecondKing() {
+        assertRejected("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBKKBNR w kq - 0 1");
+        assertRejected("rnbkkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQ - 0 1");
+    }
+
+    @Test
+    void rejectsEnPassantSquareOfTheWrongSide() {
+        assertRejected("rnbqkbnr/pppp1ppp/8/8/3Pp3/8/PPP1PPPP/RNBQKBNR w KQkq d3 0 2");
+        assertRejected("rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b KQkq d6 0 2");
+    }
+
+    @Test
+    void rejectsEnPassantSquareOffTheCaptureRanks() {
+        assertRejected("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e4 0 1");
+    }
+
+    @Test
+    void rejectsPawnOnTheBackRanks() {
+        assertRejected("P6k/8/8/8/8/8/8/K7 w - - 0 1");
+        assertRejected("k7/8/8/8/8/8/8/K6p b - - 0 1");
+    }
+
+    @Test
+    void rejectsTeamNotToMoveInCheck() {
+        assertRejected("4k3/4R3/8/8/8/8/8/4K3 w - - 0 1");
+        assertRejected("4k3/8/8/8/8/8/4r3/4K3 b - - 0 1");
+    }
+
+    @Test
+    void acceptsTeamToMoveInCheck() {
+        String fen = "4k3/4R3/8/8/8/8/8/4K3 b - - 0 1";
+        assertEquals(fen, Board.fromFen(fen).toFen());
+    }
+
+    @Test
+    void rejectsNegativeHalfmoveClock() {
+        assertRejected("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - -1 1");
+    }
+
+    @Test
+    void rejectsNonPositiveFullmoveNumber() {
+        assertRejected("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 0");
+        assertRejected("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 -3");
+    }
+
+    private static void assertRejected(String fen) {
+        assertThrows(IllegalArgumentException.class, () -> Board.fromFen(fen), fen);
+    }
+}
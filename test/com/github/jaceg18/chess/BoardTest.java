@@ -0,0 +1,42 @@
+package com.github.jaceg18.chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoardTest {
+    private static final String[] KNIGHT_SHUFFLE = {"g1f3", "g8f6", "f3g1", "f6g8"};
+
+    @Test
+    void undoStackOutgrowsItsInitialLength() {
+        Board board = new Board();
+        int plies = 3000;
+        int[] played = new int[plies];
+        for (int ply = 0; ply < plies; ply++) {
+            played[ply] = find(board, KNIGHT_SHUFFLE[ply % KNIGHT_SHUFFLE.length]);
+            board.makeMove(played[ply]);
+        }
+        assertTrue(board.isThreefoldRepetition());
+
+        Board copy = board.getCopy();
+        for (int ply = plies - 1; ply >= 0; ply--) {
+            board.undoMove(played[ply]);
+            copy.undoMove(played[ply]);
+        }
+        assertEquals(Board.START_FEN, board.toFen());
+        assertEquals(Board.START_FEN, copy.toFen());
+    }
+
+    /**
+     * Helper that finds a legal move by its coordinate notation
+     */
+    private static int find(Board board, String coordinate) {
+        int[] moves = new int[Board.MAX_MOVES];
+        int count = board.generateLegalMoves(moves);
+        for (int i = 0; i < count; i++) {
+            if (PackedMove.toCoordinate(moves[i]).equals(coordinate)) return moves[i];
+        }
+        throw new AssertionError("No legal move " + coordinate);
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.jaceg18.chess.ai;
+
+import com.github.jaceg18.chess.Board;
+import com.github.jaceg18.chess.PackedMove;
+import com.github.jaceg18.chess.Utility;
+import com.github.jaceg18.chess.evaluation.Evaluation;
+import com.github.jaceg18.chess.identity.Color;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AITest {
+    private static final int DEPTH = 3;
+    // Far enough from the real score that the window has to fail
+    private static final int MARGIN = 300;
+
+    @Test
+    void aspirationFailLowIsSearchedAgainAndReported() {
+        AI ai = new AI(Color.WHITE, DEPTH, 1, 1);
+        SearchStack stack = new SearchStack();
+        int score = score(ai, stack);
+
+        long result = ai.aspirationSearch(new Board(), DEPTH, score + MARGIN, score + MARGIN + 25, PackedMove.NONE, stack);
+
+        assertTrue((int) (result >> 32) < score + MARGIN);
+        assertTrue(stack.failLows > 0);
+        assertEquals(0, stack.failHighs);
+        assertTrue(stack.getSearchInfo(DEPTH, score).contains(" fail lows " + stack.failLows + " fail highs 0 "));
+    }
+
+    @Test
+    void aspirationFailHighIsSearchedAgainAndReported() {
+        AI ai = new AI(Color.WHITE, DEPTH, 1, 1);
+        SearchStack stack = new SearchStack();
+        int score = score(ai, stack);
+
+        long result = ai.aspirationSearch(new Board(), DEPTH, score - MARGIN - 25, score - MARGIN, PackedMove.NONE, stack);
+
+        assertTrue((int) (result >> 32) > score - MARGIN);
+        assertEquals(0, stack.failLows);
+        assertTrue(stack.failHighs > 0);
+        assertTrue(stack.getSearchInfo(DEPTH, score).contains(" fail lows 0 fail highs " + stack.failHighs + " "));
+    }
+
+    @Test
+    void quiescenceSearchesCaptureWorthMoreThanItsPlainPieceValue() {
+        AI ai = new AI(Color.WHITE, DEPTH, 1, 1);
+        SearchStack stack = new SearchStack();
+        stack.newSearch();
+        // The black rook on d5 hangs to the white rook
+        Board board = Board.fromFen("4k3/8/8/3r4/8/8/3R4/4K3 w - - 0 1");
+        int staticEval = Evaluation.evaluate(board, Color.WHITE);
+        int rook = Utility.getValueByIndex(6 + 3);
+        // A window the capture only reaches when the rook counts at the evaluation's material weight
+        int alpha = staticEval + rook + 250;
+        assertTrue(alpha < staticEval + Evaluation.MATERIAL_WEIGHT * rook);
+
+        int score = ai.quiescenceSearch(alpha, alpha + 1, board, 1, stack);
+
+        assertTrue(score > alpha, "score " + score + " alpha " + alpha);
+    }
+
+    /**
+     * Helper that searches the start position with a full window, which never fails
+     */
+    private static int score(AI ai, SearchStack stack) {
+        stack.newSearch();
+        long result = ai.aspirationSearch(new Board(), DEPTH, -Evaluation.MATE_SCORE - 1, Evaluation.MATE_SCORE + 1, PackedMove.NONE, stack);
+        assertEquals(0, stack.failLows + stack.failHighs);
+        return (int) (result >> 32);
+    }
+}
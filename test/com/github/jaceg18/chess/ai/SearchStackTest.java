@@ -0,0 +1,28 @@
+package com.github.jaceg18.chess.ai;
+
+import com.github.jaceg18.chess.PackedMove;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SearchStackTest {
+
+    @Test
+    void previousPvMoveFollowsOnlyThePreviousLine() {
+        SearchStack stack = new SearchStack();
+        stack.pvLength[2] = 2;
+        stack.updatePv(1, 12);
+        stack.updatePv(0, 11);
+        assertEquals(2, stack.pvLength[0]);
+        stack.savePv();
+
+        assertEquals(11, stack.previousPvMove(0));
+        stack.currentMoves[0] = 11;
+        assertEquals(12, stack.previousPvMove(1));
+        stack.currentMoves[0] = 21;
+        assertEquals(PackedMove.NONE, stack.previousPvMove(1));
+        stack.currentMoves[0] = 11;
+        stack.currentMoves[1] = 12;
+        assertEquals(PackedMove.NONE, stack.previousPvMove(2));
+    }
+}